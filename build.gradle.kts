@@ -3,6 +3,7 @@ plugins {
   id("org.jetbrains.kotlin.jvm") version "1.9.0"
   id("org.jetbrains.intellij") version "1.15.0"
   id("jacoco")
+  id("me.champeau.jmh") version "0.7.1"
 }
 
 group = "com.mdeditor"
@@ -66,6 +67,27 @@ tasks.test {
   useJUnitPlatform()
 }
 
+// Benchmarks in src/jmh run with the same dependencies as the tests, headless.
+// Run all with ./gradlew jmh, or a subset with ./gradlew jmh -PjmhInclude=RenderBenchmark
+configurations {
+  named("jmhImplementation") {
+    extendsFrom(configurations.compileOnly.get(), configurations.testImplementation.get())
+  }
+  named("jmhRuntimeOnly") {
+    extendsFrom(configurations.testRuntimeOnly.get())
+  }
+}
+
+jmh {
+  jmhVersion.set("1.37")
+  warmupIterations.set(3)
+  iterations.set(5)
+  fork.set(1)
+  jvmArgsAppend.add("-Djava.awt.headless=true")
+  resultFormat.set("JSON")
+  (findProperty("jmhInclude") as String?)?.let { includes.add(it) }
+}
+
 tasks.jacocoTestReport {
   reports {
     csv.required.set(true)
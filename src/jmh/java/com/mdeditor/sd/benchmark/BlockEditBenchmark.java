@@ -0,0 +1,103 @@
+package com.mdeditor.sd.benchmark;
+
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.block.multi.MultiLine;
+import com.mdeditor.sd.block.multi.MultiLineBlock;
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Block list maintenance after an edit, blockParse and mergeBlock.
+ * Both change the block list, so it is rebuilt before every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+public class BlockEditBenchmark {
+    @Param({MarkdownCorpus.README, MarkdownCorpus.LONG_DOC, MarkdownCorpus.TABLES, MarkdownCorpus.LISTS})
+    public String corpus;
+
+    private String markdown;
+    private BlockManager manager;
+    private int largestMultiLine;
+
+    @Setup
+    public void setup(){
+        markdown = MarkdownCorpus.load(corpus);
+    }
+
+    @Setup(Level.Invocation)
+    public void loadBlocks(){
+        manager = new BlockManager(mock(MarkdownEditor.class));
+        manager.getBlockList().addAll(manager.parseStringIntoBlocks(markdown));
+        largestMultiLine = -1;
+        List<Block> blocks = manager.getBlockList();
+        for(int i = 0; i < blocks.size(); i++){
+            if(blocks.get(i) instanceof MultiLineBlock && (largestMultiLine == -1
+                    || blocks.get(i).getMdText().length() > blocks.get(largestMultiLine).getMdText().length())){
+                largestMultiLine = i;
+            }
+        }
+        if(largestMultiLine == -1){
+            return;
+        }
+
+        Block block = blocks.get(largestMultiLine);
+        String mdText = block.getMdText();
+        int nl = mdText.indexOf('\n');
+        if(nl != -1){
+            block.setMdText(mdText.substring(0, nl + 1) + "plain line\n" + mdText.substring(nl + 1));
+        }
+    }
+
+    /**
+     * A plain line typed into the second line of the largest multi line block,
+     * which splits it and then every following line into its own block.
+     * Nothing to parse (index -1) if the document has no multi line block.
+     */
+    @Benchmark
+    public List<Block> blockParse(){
+        manager.blockParse(largestMultiLine);
+        return manager.getBlockList();
+    }
+
+    /**
+     * Every unordered list of the document made adjacent and merged into one block.
+     */
+    @Benchmark
+    public List<Block> mergeBlock(UnorderedLists lists){
+        if(!lists.manager.getBlockList().isEmpty()){
+            lists.manager.mergeBlock(0);
+        }
+        return lists.manager.getBlockList();
+    }
+
+    @State(Scope.Benchmark)
+    public static class UnorderedLists {
+        private String markdown;
+        private BlockManager manager;
+
+        @Setup
+        public void setup(BlockEditBenchmark benchmark){
+            markdown = MarkdownCorpus.load(benchmark.corpus);
+        }
+
+        @Setup(Level.Invocation)
+        public void loadBlocks(){
+            manager = new BlockManager(mock(MarkdownEditor.class));
+            for(Block block : manager.parseStringIntoBlocks(markdown)){
+                if(block instanceof MultiLineBlock multi && multi.getType() == MultiLine.UL){
+                    manager.getBlockList().add(block);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mdeditor.sd.benchmark;
+
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Whole document operations: splitting a document into blocks, as done when a file is opened
+ * or changed outside our editor, and joining the blocks back, as done on every save.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DocumentBenchmark {
+    @Param({MarkdownCorpus.README, MarkdownCorpus.LONG_DOC, MarkdownCorpus.TABLES, MarkdownCorpus.LISTS})
+    public String corpus;
+
+    private String markdown;
+    private BlockManager manager;
+
+    @Setup
+    public void setup(){
+        markdown = MarkdownCorpus.load(corpus);
+        manager = new BlockManager(mock(MarkdownEditor.class));
+        manager.getBlockList().addAll(manager.parseStringIntoBlocks(markdown));
+    }
+
+    @Benchmark
+    public List<?> parseString(){
+        return manager.parseString(markdown);
+    }
+
+    @Benchmark
+    public List<?> parseStringIntoBlocks(){
+        return manager.parseStringIntoBlocks(markdown);
+    }
+
+    @Benchmark
+    public String extractFullMd(){
+        return manager.extractFullMd();
+    }
+}
@@ -0,0 +1,126 @@
+package com.mdeditor.sd.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Markdown documents used by the benchmarks.
+ * "readme" is a real README, the others are generated deterministically
+ * so that every run measures exactly the same text.
+ */
+public final class MarkdownCorpus {
+    public static final String README = "readme";
+    public static final String LONG_DOC = "long";
+    public static final String TABLES = "tables";
+    public static final String LISTS = "lists";
+
+    private static final int LONG_DOC_LINES = 10_000;
+
+    private MarkdownCorpus(){
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @param name one of README, LONG_DOC, TABLES and LISTS
+     * @return Markdown text of the document
+     */
+    public static String load(String name){
+        return switch (name) {
+            case README -> readResource("/corpus/readme.md");
+            case LONG_DOC -> longDocument(LONG_DOC_LINES);
+            case TABLES -> tableHeavy(100, 8, 6);
+            case LISTS -> listHeavy(200, 10);
+            default -> throw new IllegalArgumentException("Unknown corpus: " + name);
+        };
+    }
+
+    /**
+     * Mixed document of headings, paragraphs, lists, quotes, code blocks and tables,
+     * cut at the first section boundary after the given number of lines.
+     */
+    public static String longDocument(int lines){
+        StringBuilder sb = new StringBuilder();
+        int count = 0;
+        for(int section = 0; count < lines; section++){
+            String part = switch (section % 6) {
+                case 0 -> "# Section " + section + "\n\n";
+                case 1 -> "Paragraph " + section + " with **bold**, *italic*, `code` and a [link](https://example.com/"
+                        + section + ").\nSecond line of the same paragraph.\n\n";
+                case 2 -> list("-", 5, section) + "\n";
+                case 3 -> "> Quote " + section + "\n> still quoted\n> ~~struck~~ text\n\n";
+                case 4 -> "```java\nint x = " + section + ";\nSystem.out.println(x);\n```\n\n";
+                default -> table(3, 4, section) + "\n";
+            };
+            sb.append(part);
+            count += part.split("\n").length + 1;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Tables separated by short paragraphs.
+     */
+    public static String tableHeavy(int tables, int rows, int columns){
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < tables; i++){
+            sb.append("Table ").append(i).append("\n\n");
+            sb.append(table(rows, columns, i)).append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Alternating unordered, ordered and task lists separated by short paragraphs.
+     */
+    public static String listHeavy(int lists, int items){
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < lists; i++){
+            String marker = switch (i % 3) {
+                case 0 -> "-";
+                case 1 -> "1.";
+                default -> "- [ ]";
+            };
+            sb.append(list(marker, items, i)).append("\n");
+            sb.append("Text between lists ").append(i).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    private static String list(String marker, int items, int seed){
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < items; i++){
+            sb.append(marker).append(" item ").append(seed).append('.').append(i).append(" *emphasis*\n");
+        }
+        return sb.toString();
+    }
+
+    private static String table(int rows, int columns, int seed){
+        StringBuilder sb = new StringBuilder("|");
+        for(int c = 0; c < columns; c++){
+            sb.append(" Head ").append(c).append(" |");
+        }
+        sb.append("\n|");
+        sb.append("---|".repeat(columns));
+        sb.append('\n');
+        for(int r = 0; r < rows; r++){
+            sb.append('|');
+            for(int c = 0; c < columns; c++){
+                sb.append(" cell ").append(seed).append('-').append(r).append('-').append(c).append(" |");
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String readResource(String path){
+        try (InputStream in = MarkdownCorpus.class.getResourceAsStream(path)) {
+            if(in == null){
+                throw new IllegalStateException("Missing corpus resource: " + path);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
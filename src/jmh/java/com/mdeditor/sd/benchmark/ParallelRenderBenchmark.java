@@ -0,0 +1,58 @@
+package com.mdeditor.sd.benchmark;
+
+import com.mdeditor.sd.editor.EditorSettings;
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.manager.ParsedBlock;
+import com.mdeditor.sd.utils.ParallelRenderer;
+import com.mdeditor.sd.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Scaling of ParallelRenderer with the number of render threads.
+ * The render caches are emptied before every invocation, so every block is really rendered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+public class ParallelRenderBenchmark {
+    @Param({MarkdownCorpus.LONG_DOC, MarkdownCorpus.TABLES})
+    public String corpus;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private List<String> mdTexts;
+    private int defaultParallelism;
+
+    @Setup
+    public void setup(){
+        BlockManager manager = new BlockManager(mock(MarkdownEditor.class));
+        mdTexts = manager.parseString(MarkdownCorpus.load(corpus)).stream().map(ParsedBlock::mdText).toList();
+        defaultParallelism = EditorSettings.getRenderParallelism();
+        EditorSettings.setRenderParallelism(parallelism);
+    }
+
+    @TearDown
+    public void tearDown(){
+        EditorSettings.setRenderParallelism(defaultParallelism);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCaches(){
+        Utils.getRenderCache().clear();
+        Utils.getFragmentCache().clear();
+    }
+
+    @Benchmark
+    public void prerender(){
+        ParallelRenderer.prerender(mdTexts);
+    }
+}
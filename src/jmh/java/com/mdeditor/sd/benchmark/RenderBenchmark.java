@@ -0,0 +1,46 @@
+package com.mdeditor.sd.benchmark;
+
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.manager.ParsedBlock;
+import com.mdeditor.sd.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Markdown to HTML conversion of every block of a document, without the render cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RenderBenchmark {
+    @Param({MarkdownCorpus.README, MarkdownCorpus.LONG_DOC, MarkdownCorpus.TABLES, MarkdownCorpus.LISTS})
+    public String corpus;
+
+    private List<String> mdTexts;
+
+    @Setup
+    public void setup(){
+        BlockManager manager = new BlockManager(mock(MarkdownEditor.class));
+        mdTexts = manager.parseString(MarkdownCorpus.load(corpus)).stream().map(ParsedBlock::mdText).toList();
+    }
+
+    @Benchmark
+    public void stringToHtml(Blackhole bh){
+        for(String mdText : mdTexts){
+            bh.consume(Utils.stringToHtml(mdText));
+        }
+    }
+
+    @Benchmark
+    public void stringToHtmlWithCss(Blackhole bh){
+        for(String mdText : mdTexts){
+            bh.consume(Utils.stringToHtmlWithCss(mdText));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mdeditor.sd.benchmark;
+
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.editor.EditorSettings;
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.manager.ParsedBlock;
+import com.mdeditor.sd.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Cost of showing already rendered HTML in a block, i.e. building the Swing HTML document,
+ * with the CSS embedded in every document versus one shared StyleSheet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StyleSheetBenchmark {
+    @Param({MarkdownCorpus.README, MarkdownCorpus.TABLES})
+    public String corpus;
+
+    @Param({"false", "true"})
+    public boolean sharedStyleSheet;
+
+    private List<String> html;
+    private Block block;
+    private boolean defaultSharedStyleSheet;
+
+    @Setup
+    public void setup(){
+        BlockManager manager = new BlockManager(mock(MarkdownEditor.class));
+        html = manager.parseString(MarkdownCorpus.load(corpus)).stream()
+                .map(ParsedBlock::mdText)
+                .map(mdText -> Utils.renderBlockHtml(mdText, sharedStyleSheet))
+                .toList();
+        defaultSharedStyleSheet = EditorSettings.isSharedStyleSheet();
+        EditorSettings.setSharedStyleSheet(sharedStyleSheet);
+        block = new Block(manager);
+    }
+
+    @TearDown
+    public void tearDown(){
+        EditorSettings.setSharedStyleSheet(defaultSharedStyleSheet);
+    }
+
+    @Benchmark
+    public void showHTML(Blackhole bh){
+        for(String text : html){
+            block.showHTML(text);
+            bh.consume(block.getDocument());
+        }
+    }
+}
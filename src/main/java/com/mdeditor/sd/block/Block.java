@@ -1,13 +1,22 @@
 package com.mdeditor.sd.block;
 
+import com.mdeditor.sd.editor.EditorSettings;
 import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.utils.LineIndex;
+import com.mdeditor.sd.utils.Metrics;
+import com.mdeditor.sd.utils.PaintedBlock;
+import com.mdeditor.sd.utils.PaintedBlockEditorKit;
+import com.mdeditor.sd.utils.SharedStyleSheetEditorKit;
+import com.mdeditor.sd.utils.TypingTracer;
 import com.mdeditor.sd.utils.Utils;
 import com.mdeditor.sd.manager.BlockEvent;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.InputEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.util.Objects;
 
 /**
  * Block contains mdText.
@@ -18,6 +27,12 @@ public class Block extends JTextPane {
     private String mdText; // Markdown text in block
     private BlockManager blockManager;
     protected int caretPosition; // cursor position
+    private String renderedMdText; // mdText currently shown as HTML, null if not rendered
+    private String deferredMdText; // mdText shown as plain text until it is rendered, null if not deferred
+    private final boolean sharedStyleSheet; // render body fragment only, CSS comes from the editor kit
+    private final boolean blockPainter; // paint the Markdown AST instead of rendering HTML
+    private boolean dirty; // mdText changed since the block was loaded or last saved
+    private LineIndex lineIndex; // lines of mdText, built on first use
 
     /**
      * Must append specific key or mouse listener in this constructor.
@@ -29,11 +44,19 @@ public class Block extends JTextPane {
         this.blockManager = manager;
         this.caretPosition=0;
         this.setFont(new Font("Jetbrains Mono", Font.PLAIN, 15));
+        this.sharedStyleSheet = EditorSettings.isSharedStyleSheet();
+        this.blockPainter = EditorSettings.isBlockPainter();
+        if(blockPainter){
+            this.setEditorKitForContentType("text/html", new PaintedBlockEditorKit());
+        }
+        else if(sharedStyleSheet){
+            this.setEditorKitForContentType("text/html", new SharedStyleSheetEditorKit());
+        }
 
         this.addMouseListener(new MouseListener() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                requestManager(BlockEvent.OUTFOCUS_CLICKED, getCaretPosition());
+                requestManager(BlockEvent.OUTFOCUS_CLICKED, getCaretPosition(), e);
             }
 
             @Override
@@ -77,26 +100,126 @@ public class Block extends JTextPane {
     /**
      * Set new mdText.
      * Called inside renderHTML()
+     * A different text marks the block dirty and is reported to the manager.
      */
     public void setMdText(String newText){
+        if(Objects.equals(mdText, newText)){
+            return;
+        }
         mdText = newText;
+        lineIndex = null;
+        dirty = true;
+        if(blockManager != null){
+            blockManager.blockTextChanged(this);
+        }
+    }
+
+    /**
+     * @return true if mdText changed since the block was loaded or last saved.
+     */
+    public boolean isDirty(){
+        return dirty;
     }
 
     /**
-     * Set block's text to rendered Markdown text using Utils.stringToHtml()
+     * Called once mdText is known to be in the file.
+     */
+    public void markClean(){
+        dirty = false;
+    }
+
+    /**
+     * Set block's text to rendered Markdown text using Utils.renderBlockHtml(),
+     * or Utils.renderBlockHtmlFragment() in shared stylesheet mode.
+     * In painter mode, show PaintedBlock.of(mdText) instead.
+     * Nothing happens if the block already shows the HTML of its current mdText.
      */
     public void renderHTML(){
+        if(!needsRenderHTML()){
+            return;
+        }
+        if(blockPainter){
+            showPainted(PaintedBlock.of(getMdText()));
+            return;
+        }
+        showHTML(Utils.renderBlockHtml(getMdText(), sharedStyleSheet));
+    }
+
+    /**
+     * @return false if the block already shows the HTML of its current mdText.
+     */
+    public boolean needsRenderHTML(){
+        return !this.getContentType().equals("text/html") || !Objects.equals(renderedMdText, mdText);
+    }
+
+    /**
+     * Show HTML that was already rendered from the current mdText, e.g. by ParallelRenderer.
+     * @param html result of Utils.renderBlockHtml(getMdText(), usesSharedStyleSheet())
+     */
+    public void showHTML(String html){
+        long start = Metrics.start();
         this.setContentType("text/html");
-        this.setText(Utils.stringToHtmlWithCss(getMdText()));
+        this.setText(html);
+        Metrics.stop(Metrics.SHOW_HTML, start);
+        renderedMdText = mdText;
+        deferredMdText = null;
+    }
+
+    /**
+     * Show a block that was already built from the current mdText, e.g. by ParallelRenderer.
+     * Only for blocks in painter mode, where "text/html" belongs to PaintedBlockEditorKit.
+     * @param painted result of PaintedBlock.of(getMdText())
+     */
+    public void showPainted(PaintedBlock painted){
+        long start = Metrics.start();
+        this.setContentType("text/html");
+        this.setDocument(((PaintedBlockEditorKit) this.getEditorKit()).createDocument(painted));
+        Metrics.stop(Metrics.SHOW_PAINTED, start);
+        renderedMdText = mdText;
+        deferredMdText = null;
+    }
+
+    /**
+     * Show mdText as plain text instead of rendering it now, e.g. while the block is far from the visible area.
+     * The plain text takes about the height of the rendered block, so the layout barely moves once it is rendered.
+     * The block stays deferred until it is rendered, focused or its mdText changes.
+     */
+    public void deferRenderHTML(){
+        this.setContentType("text/plain");
+        this.setText(mdText);
+        deferredMdText = mdText;
+    }
+
+    /**
+     * @return true if the block shows its current mdText as a placeholder for the rendered HTML.
+     */
+    public boolean isRenderDeferred(){
+        return deferredMdText != null && deferredMdText.equals(mdText);
+    }
+
+    /**
+     * @return true if this block renders only the body fragment and takes CSS from its editor kit.
+     */
+    public boolean usesSharedStyleSheet(){
+        return sharedStyleSheet;
+    }
+
+    /**
+     * @return true if this block paints its Markdown AST instead of rendering HTML when out of focus.
+     */
+    public boolean usesBlockPainter(){
+        return blockPainter;
     }
 
     /**
      * Set block's text to mdText.
      */
     public void renderMD(){
+        deferredMdText = null;
         if(!this.getContentType().equals("text/plain") || this.getText().isEmpty()){
             this.setContentType("text/plain");
             this.setText(mdText);
+            Metrics.count(Metrics.RENDER_MD);
         }
     }
 
@@ -120,7 +243,17 @@ public class Block extends JTextPane {
      * @see BlockEvent
      */
     public void requestManager(BlockEvent e, int pos){
+        requestManager(e, pos, null);
+    }
+
+    /**
+     * Same as requestManager(e, pos) for an event caused by input, whose typing trace starts when cause happened.
+     * @param cause key or mouse event that led to e, null if none
+     */
+    public void requestManager(BlockEvent e, int pos, InputEvent cause){
+        TypingTracer.Trace trace = TypingTracer.begin(e, cause);
         blockManager.update(this, e, pos);
+        TypingTracer.end(trace);
     }
 
     /**
@@ -139,6 +272,7 @@ public class Block extends JTextPane {
      */
     public void destruct(){
         mdText = null;
+        lineIndex = null;
         blockManager = null;
     }
 
@@ -267,12 +401,21 @@ public class Block extends JTextPane {
         return position;
     }
 
+    /**
+     * @return lines of mdText, cached until mdText changes.
+     */
+    public LineIndex getLineIndex(){
+        if(lineIndex == null){
+            lineIndex = new LineIndex(mdText);
+        }
+        return lineIndex;
+    }
+
     /**
      * @return number of spaces(indent) of line where the cursor is located.
      */
     public int getIndent() {
-        String[] lines = getMdText().split("\n");
-        return countSpace(lines[getWhichLine(lines)]);
+        return getLineIndex().indentAt(getWhichLine());
     }
 
     /**
@@ -281,9 +424,14 @@ public class Block extends JTextPane {
      * @return number of space
      */
     public int getIndentAtLine(int lineNum){
-        String[] lines = getMdText().split("\n");
+        return getLineIndex().indentAt(lineNum);
+    }
 
-        return countSpace(lines[lineNum]);
+    /**
+     * @return the line index of line of mdText where the cursor is located.
+     */
+    public int getWhichLine() {
+        return getLineIndex().lineAt(getCaretPosition());
     }
 
     /**
@@ -300,18 +448,4 @@ public class Block extends JTextPane {
         }
         return lines.length - 1;
     }
-
-    /**
-     * @return count of space of input line.
-     */
-    private int countSpace(String line) {
-        int cnt = 0;
-        for (char c : line.toCharArray()) {
-            if (c == ' ') {
-                cnt++;
-            }
-            else break;
-        }
-        return cnt;
-    }
 }
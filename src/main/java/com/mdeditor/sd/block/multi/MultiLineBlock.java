@@ -2,14 +2,16 @@ package com.mdeditor.sd.block.multi;
 
 import com.mdeditor.sd.block.Block;
 import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.utils.LineIndex;
+import com.mdeditor.sd.utils.LinePrefix;
 import com.mdeditor.sd.utils.Utils;
 import com.mdeditor.sd.manager.BlockEvent;
 
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import javax.swing.text.Element;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.util.Arrays;
-import java.util.regex.Pattern;
 
 /**
  * @see MultiLine
@@ -76,10 +78,10 @@ public class MultiLineBlock extends Block {
             @Override
             public void keyReleased(KeyEvent e) {
                 if(e.getKeyCode() == KeyEvent.VK_ENTER){
-                    requestManager(BlockEvent.UPDATE_BLOCK, getCaretPosition());
+                    requestManager(BlockEvent.UPDATE_BLOCK, getCaretPosition(), e);
                     if(!Utils.isBlockStringMultiline(getBlock()) && !getMdText().contains("\n")){
-                        requestManager(BlockEvent.NEW_BLOCK, getCaretPosition());
-                        requestManager(BlockEvent.TRANSFORM_SINGLE, getCaretPosition());
+                        requestManager(BlockEvent.NEW_BLOCK, getCaretPosition(), e);
+                        requestManager(BlockEvent.TRANSFORM_SINGLE, getCaretPosition(), e);
                         return;
                     }
 
@@ -96,13 +98,9 @@ public class MultiLineBlock extends Block {
                         setCaretPosition(caret + insertStr.length());
                     }
                     else{
-                        String[] lines = getMdText().split("\n");
-                        String curLine = lines[getWhichLine(lines)];
-                        String pref = Utils.getPrefix(getBlock(), getWhichLine(lines));
-                        Pattern regex = Pattern.compile("^[ ]*" + Pattern.quote(pref) + "?[ ]*$");
-                        if(regex.matcher(curLine).matches()){
-                            getBlock().setText(String.join("\n", Arrays.copyOfRange(lines, 0, lines.length - 1)));
-                            requestManager(BlockEvent.NEW_BLOCK, 0);
+                        if(LinePrefix.of(getBlock(), getWhichLine()).isEmptyItem()){
+                            removeLastLine();
+                            requestManager(BlockEvent.NEW_BLOCK, 0, e);
                         }
                         else{
                             String insertStr = getNewLine();
@@ -120,36 +118,33 @@ public class MultiLineBlock extends Block {
                     }
                     else if(caretPosition==-1)
                     {
-                        requestManager(BlockEvent.DELETE_BLOCK, -1);
+                        requestManager(BlockEvent.DELETE_BLOCK, -1, e);
                     }
                 }
 
                 else if(e.getKeyCode() == KeyEvent.VK_UP){
                     if(isCaretInFirstLine(previousCaretPosition)) {
-                        requestManager(BlockEvent.OUTFOCUS_BLOCK_UP, getCaretPosition());
+                        requestManager(BlockEvent.OUTFOCUS_BLOCK_UP, getCaretPosition(), e);
                     }
                 }
 
                 else if(e.getKeyCode() == KeyEvent.VK_DOWN){
                     if(isCaretInLastLine(previousCaretPosition)){
                         requestManager(BlockEvent.OUTFOCUS_BLOCK_DOWN,
-                                getCaretPosition() - Math.max(0, getMdText().lastIndexOf('\n')));
+                                getCaretPosition() - Math.max(0, getMdText().lastIndexOf('\n')), e);
                     }
                 }
 
                 else if (e.getKeyCode() == KeyEvent.VK_TAB){
-                    String[] lines = getText().split("\n");
+                    String text = getText();
+                    LineIndex lines = new LineIndex(text);
                     int caret = getCaretPosition();
-                    int lineNum = getWhichLine(lines);
-                    if(lineNum == 0) return;
-                    StringBuilder newText = new StringBuilder();
-                    for(int i = 0; i < lines.length; i++){
-                        if(i == lineNum){
-                            newText.append("  ");
-                        }
-                        newText.append(lines[i]).append("\n");
-                    }
-                    getBlock().setMdText(newText.toString());
+                    int lineNum = lines.lineAt(caret);
+                    if(lineNum <= 0) return;
+                    // indent lineNum, every line ends with a line break as if joined from split("\n")
+                    int start = lines.lineStart(lineNum);
+                    int end = lines.lineEnd(lines.lineCount() - 1);
+                    getBlock().setMdText(text.substring(0, start) + "  " + text.substring(start, end) + "\n");
                     getBlock().setText(getMdText());
                     setCaretPosition(caret + 2);
                 }
@@ -157,18 +152,49 @@ public class MultiLineBlock extends Block {
         });
     }
 
+    /**
+     * Remove the last line of mdText, with the line break before it, from the text in the block.
+     * The plain text document is edited in place when it starts with mdText,
+     * otherwise the text is replaced as a whole.
+     */
+    public void removeLastLine(){
+        LineIndex lines = getLineIndex();
+        int last = lines.lineCount() - 1;
+        int from = last <= 0 ? 0 : lines.lineEnd(last - 1);
+        Document doc = getDocument();
+        try {
+            if(getContentType().equals("text/plain") && startsWithMdText(doc)){
+                doc.remove(from, doc.getLength() - from);
+                return;
+            }
+        } catch (BadLocationException e) {
+            throw new RuntimeException(e);
+        }
+        setText(getMdText().substring(0, from));
+    }
+
+    /**
+     * mdText is the stripped text of the document, so they share their start
+     * unless the document begins with whitespace.
+     */
+    private boolean startsWithMdText(Document doc) throws BadLocationException {
+        String mdText = getMdText();
+        if(mdText.isEmpty() || doc.getLength() < mdText.length()){
+            return false;
+        }
+        char first = doc.getText(0, 1).charAt(0);
+        return first == mdText.charAt(0) && !Character.isWhitespace(first);
+    }
+
     /**
      * Generates a new formatted line for Markdown text.
      * @return the prefix of the line where the cursor is located.
      */
     private String getNewLine(){
-        String[] lines = getMdText().split("\n");
         int indent = getIndent();
-        int cur = getWhichLine(lines);
-        String pref = Utils.getPrefix(this, cur);
-        if(pref.endsWith(".")){
-            pref = String.valueOf(Integer.parseInt(pref.substring(0, pref.length() - 1)) + 1) + ".";
-        }
+        int cur = getWhichLine();
+        LinePrefix prefix = LinePrefix.of(this, cur);
+        String pref = prefix.marker() == '.' ? (prefix.number() + 1) + "." : prefix.text();
         String ret = "\n" + " ".repeat(indent) + pref;
         if(!pref.isEmpty()){
             ret += " ";
@@ -185,11 +211,21 @@ public class MultiLineBlock extends Block {
     }
 
     /**
-     * Get type of this MultiLineBlock
+     * Get type of this MultiLineBlock.
+     * Blocks created while editing have no type set, theirs follows from the marker of their first line.
      * @see MultiLine
      */
     public MultiLine getType() {
-        return type;
+        if(type != null){
+            return type;
+        }
+        return switch (LinePrefix.of(this, 0).kind()) {
+            case BULLET -> MultiLine.UL;
+            case ORDERED -> MultiLine.OL;
+            case QUOTE -> MultiLine.BLOCK_QUOTE;
+            case TABLE -> MultiLine.TABLE;
+            default -> MultiLine.NONE;
+        };
     }
 
     /**
@@ -43,10 +43,10 @@ public class SingleLineBlock extends Block {
             public void keyReleased(KeyEvent e) {
                 if(e.getKeyCode() == KeyEvent.VK_ENTER){
                     if(Utils.isBlockStringMultiline(getBlock())){
-                        requestManager(BlockEvent.TRANSFORM_MULTI, getCaretPosition());
+                        requestManager(BlockEvent.TRANSFORM_MULTI, getCaretPosition(), e);
                     }
                     else{
-                        requestManager(BlockEvent.NEW_BLOCK, 0);
+                        requestManager(BlockEvent.NEW_BLOCK, 0, e);
                     }
                 }
 
@@ -55,16 +55,16 @@ public class SingleLineBlock extends Block {
                         caretPosition=-1;
                     }
                     else if(caretPosition==-1) {
-                        requestManager(BlockEvent.DELETE_BLOCK, -1);
+                        requestManager(BlockEvent.DELETE_BLOCK, -1, e);
                     }
                 }
 
                 else if(e.getKeyCode() == KeyEvent.VK_UP){
-                    requestManager(BlockEvent.OUTFOCUS_BLOCK_UP, getCaretPosition());
+                    requestManager(BlockEvent.OUTFOCUS_BLOCK_UP, getCaretPosition(), e);
                 }
 
                 else if(e.getKeyCode() == KeyEvent.VK_DOWN){
-                    requestManager(BlockEvent.OUTFOCUS_BLOCK_DOWN, getCaretPosition());
+                    requestManager(BlockEvent.OUTFOCUS_BLOCK_DOWN, getCaretPosition(), e);
                 }
             }
 
@@ -0,0 +1,149 @@
+package com.mdeditor.sd.editor;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.mdeditor.sd.manager.BlockManager;
+
+import javax.swing.Timer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Saves the blocks of a BlockManager once edits pause for EditorSettings.getAutosaveDelay() milliseconds.
+ * Edits within the quiet period are coalesced into one save.
+ * The block texts are snapshot on the UI thread, encoded on a background executor,
+ * and only the final write of the bytes runs on the UI thread again.
+ * If the file is open as a document, the snapshot is applied to it as a patch and the document is saved instead.
+ */
+public class Autosaver {
+    private static final Logger LOG = Logger.getInstance(Autosaver.class);
+
+    /**
+     * File the blocks are saved to.
+     */
+    public interface Target {
+        Charset getCharset();
+
+        /**
+         * @return stamp that changes whenever the file is written, by us or anyone else.
+         */
+        long getModificationStamp();
+
+        /**
+         * Replace the content of the file, called on the UI executor.
+         */
+        void write(byte[] content) throws IOException;
+
+        /**
+         * Apply texts as an edit of a document already open for the file and save that document,
+         * called on the UI executor. The blocks are marked saved afterwards, so the file must be written too.
+         * @param texts block texts from BlockManager.snapshotTexts()
+         * @return false if there is no such document and the encoded bytes should be written instead.
+         */
+        default boolean patch(List<String> texts){
+            return false;
+        }
+    }
+
+    private final BlockManager blockManager;
+    private final Executor backgroundExecutor;
+    private final Executor uiExecutor;
+    private final Target target;
+    private final Timer timer;
+    private int generation; // latest snapshot, older ones are never written
+
+    /**
+     * @param blockManager manager whose blocks are saved
+     * @param backgroundExecutor executor for encoding the text, e.g. a pooled thread
+     * @param uiExecutor executor for BlockManager calls and the final write, e.g. SwingUtilities::invokeLater
+     * @param target file to save to
+     */
+    public Autosaver(BlockManager blockManager, Executor backgroundExecutor, Executor uiExecutor, Target target){
+        this.blockManager = blockManager;
+        this.backgroundExecutor = backgroundExecutor;
+        this.uiExecutor = uiExecutor;
+        this.target = target;
+        this.timer = new Timer(0, e -> saveNow());
+        this.timer.setRepeats(false);
+    }
+
+    /**
+     * (Re)start the quiet period. Call on the UI thread after every edit.
+     */
+    public void schedule(){
+        int delay = EditorSettings.getAutosaveDelay();
+        if(delay <= 0){
+            return;
+        }
+        timer.setInitialDelay(delay);
+        timer.restart();
+    }
+
+    /**
+     * Drop the pending save and any save still being encoded,
+     * e.g. because the file is saved synchronously instead.
+     */
+    public void cancel(){
+        timer.stop();
+        generation++;
+    }
+
+    /**
+     * Start saving right away if the blocks are modified. Call on the UI thread.
+     */
+    public void saveNow(){
+        timer.stop();
+        if(!blockManager.isModified()){
+            return;
+        }
+        int snapshotGeneration = ++generation;
+        long modificationCount = blockManager.getModificationCount();
+        long stamp = target.getModificationStamp();
+        Charset charset = target.getCharset();
+        List<String> texts = blockManager.snapshotTexts();
+        if(target.patch(texts)){
+            blockManager.markSaved(modificationCount);
+            return;
+        }
+
+        backgroundExecutor.execute(() -> {
+            byte[] content;
+            try {
+                content = encode(texts, charset);
+            } catch (IOException e) {
+                LOG.warn("Failed to encode markdown file", e);
+                return;
+            }
+            uiExecutor.execute(() -> commit(snapshotGeneration, modificationCount, stamp, content));
+        });
+    }
+
+    private void commit(int snapshotGeneration, long modificationCount, long stamp, byte[] content){
+        if(snapshotGeneration != generation){
+            return;
+        }
+        // the file changed since the snapshot, overwriting it could lose that change
+        if(target.getModificationStamp() != stamp){
+            return;
+        }
+        try {
+            target.write(content);
+        } catch (IOException e) {
+            LOG.warn("Failed to autosave markdown file", e);
+            return;
+        }
+        blockManager.markSaved(modificationCount);
+    }
+
+    private static byte[] encode(List<String> texts, Charset charset) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(out, charset);
+        BlockManager.writeFullMd(texts, writer);
+        writer.flush();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,142 @@
+package com.mdeditor.sd.editor;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.manager.ParsedBlock;
+import com.mdeditor.sd.utils.ParallelRenderer;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Opens a file into a BlockManager without blocking the UI thread.
+ * Loading and parsing run on a background executor, HTML rendering on ParallelRenderer's pool;
+ * blocks are then handed to the UI executor in chunks, the first screen first.
+ * Once cancelled, no further chunk reaches the BlockManager.
+ * If the text cannot be read or parsed, the loader fails instead and never finishes.
+ */
+public class BlockLoader {
+    private static final Logger LOG = Logger.getInstance(BlockLoader.class);
+    private static final int FIRST_CHUNK_SIZE = 40; // roughly one screen of blocks
+    private static final int CHUNK_SIZE = 200;
+
+    private final BlockManager blockManager;
+    private final Executor backgroundExecutor;
+    private final Executor uiExecutor;
+    private volatile boolean cancelled;
+    private volatile boolean finished;
+    private volatile Exception failure; // why loading failed, null unless it did
+
+    /**
+     * @param blockManager manager receiving the loaded blocks
+     * @param backgroundExecutor executor for loading, parsing and rendering, e.g. a pooled thread
+     * @param uiExecutor executor for BlockManager calls, e.g. SwingUtilities::invokeLater
+     */
+    public BlockLoader(BlockManager blockManager, Executor backgroundExecutor, Executor uiExecutor){
+        this.blockManager = blockManager;
+        this.backgroundExecutor = backgroundExecutor;
+        this.uiExecutor = uiExecutor;
+    }
+
+    /**
+     * Start loading. onFinished runs on the UI executor after the last chunk was published.
+     * @param textSource supplies the whole Markdown text, called on the background executor
+     */
+    public void start(Callable<String> textSource, Runnable onFinished){
+        start(textSource, onFinished, e -> {});
+    }
+
+    /**
+     * Start loading. Exactly one of onFinished and onFailed runs on the UI executor, unless cancelled before.
+     * @param onFailed receives the exception thrown by textSource or the parser
+     */
+    public void start(Callable<String> textSource, Runnable onFinished, Consumer<Exception> onFailed){
+        backgroundExecutor.execute(() -> load(textSource, onFinished, onFailed));
+    }
+
+    /**
+     * Stop loading. Chunks not yet handed to the BlockManager are dropped.
+     */
+    public void cancel(){
+        cancelled = true;
+    }
+
+    public boolean isCancelled(){
+        return cancelled;
+    }
+
+    /**
+     * @return true once every block was handed to the BlockManager.
+     */
+    public boolean isFinished(){
+        return finished;
+    }
+
+    /**
+     * @return true once the failure was handed to the UI executor; the loader then never finishes.
+     */
+    public boolean isFailed(){
+        return failure != null;
+    }
+
+    /**
+     * @return exception that made loading fail, or null.
+     */
+    public Exception getFailure(){
+        return failure;
+    }
+
+    private void load(Callable<String> textSource, Runnable onFinished, Consumer<Exception> onFailed){
+        List<ParsedBlock> parsed;
+        try{
+            parsed = blockManager.parseString(textSource.call());
+        } catch (Exception e) {
+            LOG.warn("Failed to load markdown file", e);
+            uiExecutor.execute(() -> {
+                if(cancelled){
+                    return;
+                }
+                failure = e;
+                onFailed.accept(e);
+            });
+            return;
+        }
+
+        int start = 0;
+        int end = Math.min(FIRST_CHUNK_SIZE, parsed.size());
+        do{
+            if(cancelled){
+                return;
+            }
+            List<ParsedBlock> chunk = parsed.subList(start, end);
+            // in lazy rendering mode only the first screen is rendered right away
+            if(start == 0 || !blockManager.isLazyRendering()){
+                ParallelRenderer.prerender(chunk.stream().map(ParsedBlock::mdText).toList());
+            }
+            publish(chunk, start == 0, end == parsed.size(), onFinished);
+
+            start = end;
+            end = Math.min(start + CHUNK_SIZE, parsed.size());
+        } while(start < parsed.size());
+    }
+
+    private void publish(List<ParsedBlock> chunk, boolean first, boolean last, Runnable onFinished){
+        uiExecutor.execute(() -> {
+            if(cancelled){
+                return;
+            }
+            if(first){
+                blockManager.setParsedBlocks(chunk);
+            }
+            else{
+                blockManager.appendParsedBlocks(chunk);
+            }
+            if(last){
+                finished = true;
+                onFinished.run();
+            }
+        });
+    }
+}
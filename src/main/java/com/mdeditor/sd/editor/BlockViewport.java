@@ -0,0 +1,203 @@
+package com.mdeditor.sd.editor;
+
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.manager.BlockSequence;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Virtualized layout of blocks inside the editor's scroll pane.
+ * Only blocks intersecting the visible area plus a margin of one screen above and below
+ * (and always the focused block) are added to the panel, so only they are laid out and painted.
+ * Every run of blocks in between is replaced by one filler of their measured or estimated height.
+ * Heights are summed up in the BlockSequence of the manager, so the realized range is found in O(log n)
+ * whenever the viewport scrolls or resizes, and only blocks entering or leaving it are added or removed.
+ */
+public class BlockViewport implements ChangeListener {
+    private static final int BLOCK_PADDING = 16; // estimated insets and margins of a block
+
+    private final Box interiorPanel;
+    private final JViewport viewport;
+    private final BlockManager blockManager;
+    private List<Block> realized;
+    private boolean refreshing;
+
+    /**
+     * @param interiorPanel vertical box holding the blocks, must be the top of the viewport's view
+     * @param viewport viewport of the editor's scroll pane
+     * @param blockManager manager owning the blocks to show
+     */
+    public BlockViewport(Box interiorPanel, JViewport viewport, BlockManager blockManager){
+        this.interiorPanel = interiorPanel;
+        this.viewport = viewport;
+        this.blockManager = blockManager;
+        this.realized = new ArrayList<>();
+        blockManager.getBlockSequence().setHeightEstimator(BlockViewport::estimateHeight);
+        viewport.addChangeListener(this);
+    }
+
+    /**
+     * Called when the viewport scrolls or resizes.
+     */
+    @Override
+    public void stateChanged(ChangeEvent e) {
+        refresh(false);
+    }
+
+    /**
+     * Recompute which blocks are realized and update the panel if that set changed.
+     * @param force update even if the set did not change, e.g. after blocks were inserted or removed.
+     */
+    public void refresh(boolean force){
+        if(refreshing){
+            return;
+        }
+        refreshing = true;
+        try{
+            BlockSequence blocks = blockManager.getBlockSequence();
+            rememberHeights(blocks);
+
+            List<Block> wanted = new ArrayList<>();
+            if(!blocks.isEmpty()){
+                Rectangle view = viewport.getViewRect();
+                int first = blocks.indexAtY(view.y - view.height);
+                int last = blocks.indexAtY(view.y + 2 * view.height);
+                Block focus = blockManager.getBlockOnFocus();
+                int focusIndex = focus == null ? -1 : blocks.indexOf(focus);
+                if(focusIndex >= 0 && focusIndex < first){
+                    wanted.add(focus);
+                }
+                wanted.addAll(blocks.subList(first, last + 1));
+                if(focusIndex > last){
+                    wanted.add(focus);
+                }
+            }
+
+            if(force || !wanted.equals(realized)){
+                realized = wanted;
+                update(blocks);
+            }
+        }
+        finally{
+            refreshing = false;
+        }
+    }
+
+    /**
+     * @return blocks currently added to the panel.
+     */
+    public List<Block> getRealizedBlocks(){
+        return realized;
+    }
+
+    /**
+     * Remove blocks that are no longer realized, insert the new ones in order,
+     * then size the fillers for the gaps between them.
+     */
+    private void update(BlockSequence blocks){
+        Set<Block> keep = Collections.newSetFromMap(new IdentityHashMap<>());
+        keep.addAll(realized);
+        for(int i = interiorPanel.getComponentCount() - 1; i >= 0; i--){
+            Component component = interiorPanel.getComponent(i);
+            if(component instanceof Block block && !keep.contains(block)){
+                interiorPanel.remove(i);
+            }
+        }
+
+        // the blocks left in the panel keep their order, so the new ones are merged in between
+        int index = 0;
+        for(Block block : realized){
+            while(index < interiorPanel.getComponentCount() && interiorPanel.getComponent(index) instanceof Box.Filler){
+                index++;
+            }
+            if(index >= interiorPanel.getComponentCount() || interiorPanel.getComponent(index) != block){
+                interiorPanel.add(block, index);
+            }
+            index++;
+        }
+
+        updateFillers(blocks);
+        interiorPanel.revalidate();
+        interiorPanel.repaint();
+    }
+
+    /**
+     * Leave exactly one filler of the right height in every gap between realized blocks, none where there is no gap.
+     */
+    private void updateFillers(BlockSequence blocks){
+        int index = 0;
+        int y = 0;
+        for(Block block : realized){
+            index = fillGap(index, blocks.topOf(block) - y);
+            index++; // the block itself
+            y = blocks.topOf(block) + blocks.heightOf(block);
+        }
+        index = fillGap(index, blocks.totalHeight() - y);
+        while(index < interiorPanel.getComponentCount()){
+            interiorPanel.remove(index);
+        }
+    }
+
+    /**
+     * Make the components from index up to the next block a single filler of height, or nothing if height is 0.
+     * @return index of the component after the filler
+     */
+    private int fillGap(int index, int height){
+        int end = index;
+        while(end < interiorPanel.getComponentCount() && interiorPanel.getComponent(end) instanceof Box.Filler){
+            end++;
+        }
+        int fillers = height > 0 ? 1 : 0;
+        while(end - index > fillers){
+            interiorPanel.remove(--end);
+        }
+        if(fillers == 0){
+            return index;
+        }
+        Dimension size = new Dimension(0, height);
+        Dimension max = new Dimension(Short.MAX_VALUE, height);
+        if(end > index){
+            ((Box.Filler) interiorPanel.getComponent(index)).changeShape(size, size, max);
+        }
+        else{
+            interiorPanel.add(new Box.Filler(size, size, max), index);
+        }
+        return index + 1;
+    }
+
+    /**
+     * Keep the real height of every block laid out so far, for when it leaves the panel.
+     */
+    private void rememberHeights(BlockSequence blocks){
+        for(Block block : realized){
+            if(block.getParent() == interiorPanel && block.getHeight() > 0){
+                blocks.setHeight(block, block.getHeight());
+            }
+        }
+    }
+
+    /**
+     * @return height of block estimated from its number of lines, until it is measured.
+     */
+    private static int estimateHeight(Block block){
+        String mdText = block.getMdText();
+        int lines = 1;
+        if(mdText != null){
+            for(int i = 0; i < mdText.length(); i++){
+                if(mdText.charAt(i) == '\n'){
+                    lines++;
+                }
+            }
+        }
+        return lines * block.getFontMetrics(block.getFont()).getHeight() + BLOCK_PADDING;
+    }
+}
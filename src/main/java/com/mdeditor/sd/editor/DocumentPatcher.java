@@ -0,0 +1,59 @@
+package com.mdeditor.sd.editor;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.manager.TextPatch;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+/**
+ * Writes the blocks into an IntelliJ Document as one minimal replaceString edit,
+ * so highlighting, PSI and undo of the default editor only see the changed range.
+ * Remembers the block texts it wrote last; as long as nobody else changed the document since,
+ * the patch is computed from the changed blocks only.
+ * Must be called inside a write command action.
+ */
+public class DocumentPatcher {
+    private List<String> syncedTexts; // block texts the document held after our last write
+    private long syncedStamp; // document modification stamp after our last write
+
+    /**
+     * Bring document in line with texts.
+     * @param texts block texts, e.g. from BlockManager.snapshotTexts()
+     */
+    public void apply(Document document, List<String> texts){
+        TextPatch patch;
+        if(syncedTexts != null && document.getModificationStamp() == syncedStamp){
+            patch = TextPatch.between(syncedTexts, texts);
+        }
+        else{
+            patch = TextPatch.between(document.getCharsSequence(), join(texts));
+        }
+        if(patch != null){
+            document.replaceString(patch.start(), patch.end(), patch.replacement());
+        }
+        syncedTexts = texts;
+        syncedStamp = document.getModificationStamp();
+    }
+
+    /**
+     * apply(), then save document to its file, so the texts reach the disk and not only the document.
+     */
+    public void applyAndSave(Document document, List<String> texts, FileDocumentManager fileDocumentManager){
+        apply(document, texts);
+        fileDocumentManager.saveDocument(document);
+    }
+
+    private static String join(List<String> texts){
+        StringWriter writer = new StringWriter();
+        try {
+            BlockManager.writeFullMd(texts, writer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return writer.toString();
+    }
+}
@@ -0,0 +1,29 @@
+package com.mdeditor.sd.editor;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.ide.CopyPasteManager;
+import com.mdeditor.sd.utils.Metrics;
+import com.mdeditor.sd.utils.TypingTracer;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.datatransfer.StringSelection;
+
+/**
+ * Writes the metrics collected by our editor to the IDE log as JSON and copies them to the clipboard.
+ * @see Metrics
+ */
+public class DumpMetricsAction extends AnAction {
+    private static final Logger LOG = Logger.getInstance(DumpMetricsAction.class);
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        String json = Metrics.getRegistry().toJson();
+        LOG.info("Markdown editor metrics: " + json);
+        if(EditorSettings.isTypingTrace()){
+            LOG.info("Keystroke to paint latency in ms:\n" + TypingTracer.report(Metrics.getRegistry()));
+        }
+        CopyPasteManager.getInstance().setContents(new StringSelection(json));
+    }
+}
@@ -0,0 +1,148 @@
+package com.mdeditor.sd.editor;
+
+/**
+ * Switches for optional rendering and editing modes of our editor.
+ * Every default is read from a system property (e.g. -Dsd.sharedStyleSheet=true),
+ * so a mode can be tried from the IDE's VM options without a settings page.
+ */
+public final class EditorSettings {
+    private static volatile boolean sharedStyleSheet = Boolean.getBoolean("sd.sharedStyleSheet");
+    private static volatile boolean blockPainter = Boolean.getBoolean("sd.blockPainter");
+    private static volatile boolean virtualizedViewport = Boolean.getBoolean("sd.virtualizedViewport");
+    private static volatile boolean lazyRendering = Boolean.getBoolean("sd.lazyRendering");
+    private static volatile int renderParallelism = Integer.getInteger("sd.renderParallelism",
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    private static volatile boolean liveDocumentSync = Boolean.getBoolean("sd.liveDocumentSync");
+    private static volatile int autosaveDelay = Integer.getInteger("sd.autosaveDelay", 1000);
+    private static volatile boolean typingTrace = Boolean.getBoolean("sd.typingTrace");
+    private static volatile boolean metricsEnabled = Boolean.parseBoolean(System.getProperty("sd.metrics", "true"));
+
+    private EditorSettings(){
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @return true if blocks share one parsed StyleSheet instead of embedding the CSS in each document.
+     */
+    public static boolean isSharedStyleSheet(){
+        return sharedStyleSheet;
+    }
+
+    /**
+     * Only blocks created after this call pick up the new value.
+     */
+    public static void setSharedStyleSheet(boolean enabled){
+        sharedStyleSheet = enabled;
+    }
+
+    /**
+     * @return true if unfocused blocks are painted from the Markdown AST with Graphics2D
+     * instead of being rendered into an HTMLDocument.
+     * @see com.mdeditor.sd.utils.PaintedBlock
+     */
+    public static boolean isBlockPainter(){
+        return blockPainter;
+    }
+
+    /**
+     * Only blocks created after this call pick up the new value.
+     */
+    public static void setBlockPainter(boolean enabled){
+        blockPainter = enabled;
+    }
+
+    /**
+     * @return true if only the blocks near the visible area are added to the editor panel.
+     * @see BlockViewport
+     */
+    public static boolean isVirtualizedViewport(){
+        return virtualizedViewport;
+    }
+
+    /**
+     * Only editors opened after this call pick up the new value.
+     */
+    public static void setVirtualizedViewport(boolean enabled){
+        virtualizedViewport = enabled;
+    }
+
+    /**
+     * @return true if blocks loaded from the file show their mdText as plain text
+     * until they come near the visible area, and only then are rendered to HTML.
+     * @see LazyRenderer
+     */
+    public static boolean isLazyRendering(){
+        return lazyRendering;
+    }
+
+    /**
+     * Only editors opened after this call pick up the new value.
+     */
+    public static void setLazyRendering(boolean enabled){
+        lazyRendering = enabled;
+    }
+
+    /**
+     * @return number of threads rendering block HTML in parallel, 1 for sequential rendering.
+     * The render pool takes its size from the first parallel render, later values only switch between parallel and sequential.
+     */
+    public static int getRenderParallelism(){
+        return renderParallelism;
+    }
+
+    public static void setRenderParallelism(int parallelism){
+        renderParallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @return quiet period in milliseconds after the last edit before the file is saved, 0 or less for no autosave.
+     */
+    public static int getAutosaveDelay(){
+        return autosaveDelay;
+    }
+
+    public static void setAutosaveDelay(int delay){
+        autosaveDelay = delay;
+    }
+
+    /**
+     * @return true if blocks and the file's document are kept in step on every edit,
+     * instead of being reconciled when the editor tab is switched.
+     * @see LiveDocumentSync
+     */
+    public static boolean isLiveDocumentSync(){
+        return liveDocumentSync;
+    }
+
+    /**
+     * Only editors opened after this call pick up the new value.
+     */
+    public static void setLiveDocumentSync(boolean enabled){
+        liveDocumentSync = enabled;
+    }
+
+    /**
+     * @return true if render, parse and event timings are recorded, on by default.
+     * @see com.mdeditor.sd.utils.Metrics
+     */
+    public static boolean isMetricsEnabled(){
+        return metricsEnabled;
+    }
+
+    public static void setMetricsEnabled(boolean enabled){
+        metricsEnabled = enabled;
+    }
+
+    /**
+     * @return true if the latency from key events in a block until the result is painted is recorded.
+     * Needs metrics to be enabled.
+     * @see com.mdeditor.sd.utils.TypingTracer
+     */
+    public static boolean isTypingTrace(){
+        return typingTrace;
+    }
+
+    public static void setTypingTrace(boolean enabled){
+        typingTrace = enabled;
+    }
+}
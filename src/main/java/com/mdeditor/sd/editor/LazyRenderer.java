@@ -0,0 +1,134 @@
+package com.mdeditor.sd.editor;
+
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.utils.ParallelRenderer;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders blocks whose HTML was deferred once they come near the visible area of the editor's scroll pane.
+ * Deferred blocks intersecting the visible area plus a prefetch window of one screen above and below
+ * are rendered together whenever the viewport scrolls or resizes; the focused block is left as it is.
+ * Works on top of BlockViewport as well, fillers in the panel are skipped.
+ * @see Block#deferRenderHTML()
+ */
+public class LazyRenderer implements ChangeListener {
+    private static final int PREFETCH_SCREENS = 1;
+
+    private final Container interiorPanel;
+    private final JViewport viewport;
+    private final BlockManager blockManager;
+    private boolean rendering;
+    private boolean retryScheduled;
+
+    /**
+     * @param interiorPanel vertical box holding the blocks, inside the viewport's view
+     * @param viewport viewport of the editor's scroll pane
+     * @param blockManager manager owning the blocks to render
+     */
+    public LazyRenderer(Container interiorPanel, JViewport viewport, BlockManager blockManager){
+        this.interiorPanel = interiorPanel;
+        this.viewport = viewport;
+        this.blockManager = blockManager;
+        viewport.addChangeListener(this);
+    }
+
+    /**
+     * Called when the viewport scrolls or resizes.
+     */
+    @Override
+    public void stateChanged(ChangeEvent e) {
+        renderVisible();
+    }
+
+    /**
+     * Render the deferred blocks within the prefetch window of the visible area.
+     * If the panel is waiting for its layout, this is repeated once the layout is done.
+     */
+    public void renderVisible(){
+        render();
+        if(!interiorPanel.isValid()){
+            retryLater();
+        }
+    }
+
+    private void render(){
+        if(rendering){
+            return;
+        }
+        rendering = true;
+        try{
+            ParallelRenderer.renderHTML(findVisibleDeferred());
+        }
+        finally{
+            rendering = false;
+        }
+    }
+
+    /**
+     * @return deferred blocks other than blockOnFocus within the prefetch window, top to bottom.
+     * Blocks not laid out yet have no height and are left for a later call.
+     */
+    public List<Block> findVisibleDeferred(){
+        Rectangle view = viewport.getViewRect();
+        int offset = viewport.getView() == null ? 0
+                : SwingUtilities.convertPoint(interiorPanel, 0, 0, viewport.getView()).y;
+        int top = view.y - PREFETCH_SCREENS * view.height - offset;
+        int bottom = view.y + (1 + PREFETCH_SCREENS) * view.height - offset;
+
+        List<Block> visible = new ArrayList<>();
+        Block focus = blockManager.getBlockOnFocus();
+        int count = interiorPanel.getComponentCount();
+        for(int i = firstEndingBelow(top); i < count; i++){
+            Component component = interiorPanel.getComponent(i);
+            if(component.getY() > bottom){
+                break;
+            }
+            if(component instanceof Block block && block != focus && block.getHeight() > 0 && block.isRenderDeferred()){
+                visible.add(block);
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * Components are stacked from top to bottom, so a binary search finds the first visible one.
+     * @return index of the first component whose bottom edge is at or below y.
+     */
+    private int firstEndingBelow(int y){
+        int low = 0;
+        int high = interiorPanel.getComponentCount();
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            Component component = interiorPanel.getComponent(mid);
+            if(component.getY() + component.getHeight() < y){
+                low = mid + 1;
+            }
+            else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Render once more after the pending layout of a panel on screen.
+     * A panel that is not showing waits for the viewport event of being shown.
+     */
+    private void retryLater(){
+        if(retryScheduled || !interiorPanel.isShowing()){
+            return;
+        }
+        retryScheduled = true;
+        SwingUtilities.invokeLater(() -> {
+            retryScheduled = false;
+            render();
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.mdeditor.sd.editor;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.mdeditor.sd.manager.BlockManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the blocks and the IntelliJ Document of the same file in step while both are open.
+ * Document changes made elsewhere, e.g. in the default text editor, are synced into the blocks
+ * with BlockManager.syncBlocks(), which only replaces the blocks that changed.
+ * Block edits are pushed into the document as a minimal patch by DocumentPatcher.
+ * Changes we push ourselves are not synced back.
+ */
+public class LiveDocumentSync implements DocumentListener {
+    private final BlockManager blockManager;
+    private final DocumentPatcher documentPatcher;
+    private final Document document;
+    private final Consumer<Runnable> writeCommand;
+    private final Executor uiExecutor;
+    private boolean pushing; // document changes are ours
+    private boolean pullScheduled; // a sync of document changes is already queued
+
+    /**
+     * @param blockManager manager holding the blocks
+     * @param documentPatcher patcher used for every write into document
+     * @param document document of the file
+     * @param writeCommand runs a document change as a write command action
+     * @param uiExecutor executor for BlockManager calls, e.g. SwingUtilities::invokeLater
+     */
+    public LiveDocumentSync(BlockManager blockManager, DocumentPatcher documentPatcher, Document document,
+                            Consumer<Runnable> writeCommand, Executor uiExecutor){
+        this.blockManager = blockManager;
+        this.documentPatcher = documentPatcher;
+        this.document = document;
+        this.writeCommand = writeCommand;
+        this.uiExecutor = uiExecutor;
+    }
+
+    /**
+     * Start listening to the document until parent is disposed.
+     */
+    public void attach(Disposable parent){
+        document.addDocumentListener(this, parent);
+    }
+
+    /**
+     * Write the current blocks into the document. Call on the UI thread after blocks were edited.
+     * The document is not saved, so the blocks stay modified until it is written to the file.
+     */
+    public void pushBlocks(){
+        pushing = true;
+        try {
+            writeCommand.accept(() -> documentPatcher.apply(document, blockManager.snapshotTexts()));
+        } finally {
+            pushing = false;
+        }
+    }
+
+    /**
+     * @return document kept in step with the blocks.
+     */
+    public Document getDocument(){
+        return document;
+    }
+
+    /**
+     * Several changes in a row, e.g. while typing, are synced once.
+     */
+    @Override
+    public void documentChanged(@NotNull DocumentEvent event) {
+        if(pushing || pullScheduled){
+            return;
+        }
+        pullScheduled = true;
+        uiExecutor.execute(this::pullDocument);
+    }
+
+    private void pullDocument(){
+        pullScheduled = false;
+        blockManager.syncBlocks(document.getText(), false);
+    }
+}
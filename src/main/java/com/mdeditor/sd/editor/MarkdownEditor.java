@@ -1,7 +1,23 @@
 package com.mdeditor.sd.editor;
 
 import com.intellij.openapi.fileEditor.FileEditor;
+import com.mdeditor.sd.manager.BlockChange;
+
+import java.util.List;
 
 public interface MarkdownEditor extends FileEditor {
+    /**
+     * Rebuild the whole UI from the current block list.
+     */
     void updateUI();
+
+    /**
+     * Apply only the given structural changes of the block list to the UI, in order.
+     */
+    void updateUI(List<BlockChange> changes);
+
+    /**
+     * Called whenever the user edited the blocks, e.g. to schedule an autosave.
+     */
+    void contentUpdated();
 }
@@ -6,7 +6,9 @@ import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.*;
 import com.intellij.ui.components.JBScrollPane;
 import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.manager.BlockChange;
 import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.utils.TypingTracer;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -17,10 +19,14 @@ import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.WriteAction;
 import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.project.ProjectManagerListener;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
 
 import javax.swing.*;
 import java.beans.PropertyChangeListener;
@@ -32,10 +38,16 @@ public class MarkdownEditorImpl implements MarkdownEditor {
 
     // blocks
     private final BlockManager blockManager;
+    private final BlockLoader blockLoader; // opens the file in the background
+    private final Autosaver autosaver; // saves the file once edits pause
+    private final DocumentPatcher documentPatcher; // writes only changed ranges into the file's document
+    private LiveDocumentSync liveDocumentSync; // null unless live document sync mode is on
 
     // for UI
     private Box interiorPanel; // for vertical align : blocks are in here
     private JScrollPane scrollPane; // for scroll
+    private BlockViewport blockViewport; // null unless virtualized viewport mode is on
+    private LazyRenderer lazyRenderer; // null unless lazy rendering mode is on
 
     /**
      * @param project which project this editor belongs.
@@ -45,11 +57,16 @@ public class MarkdownEditorImpl implements MarkdownEditor {
         this.file = file;
         this.project = project;
         this.blockManager = new BlockManager(this);
+        this.blockLoader = new BlockLoader(blockManager,
+                ApplicationManager.getApplication()::executeOnPooledThread, SwingUtilities::invokeLater);
+        this.documentPatcher = new DocumentPatcher();
+        this.autosaver = new Autosaver(blockManager,
+                ApplicationManager.getApplication()::executeOnPooledThread, SwingUtilities::invokeLater, getAutosaveTarget());
 
         // set ui
-        updateEditor();
         initUI();
         setInitialUI();
+        blockLoader.start(() -> VfsUtilCore.loadText(file), this::startLiveDocumentSync, this::showLoadError);
 
         // Add a listener to detect file editor changes
         project.getMessageBus().connect()
@@ -74,12 +91,13 @@ public class MarkdownEditorImpl implements MarkdownEditor {
 
     /**
      * Load text from the actual file.
+     * Blocks whose text did not change since the last load are kept as they are.
      */
     private void updateEditor()
     {
         try {
             String mdFileContent = VfsUtilCore.loadText(file);
-            blockManager.setBlocks(mdFileContent);
+            blockManager.syncBlocks(mdFileContent);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -88,21 +106,144 @@ public class MarkdownEditorImpl implements MarkdownEditor {
     //Editor to Markdown
 
     /**
-     * Updates the content of a Markdown file
-     * by saving the extracted Markdown text from a block manager.
+     * Updates the content of a Markdown file.
+     * If the file is open as a document, only the changed range is replaced in it and the document is saved,
+     * otherwise the Markdown text of every block is streamed into the file.
+     * Nothing is written if no block changed since the last load or save.
+     * In live document sync mode the document already holds every edit and is only saved if it is unsaved.
      */
     private void updateMarkdownFile() {
+        // blocks of a file still loading are incomplete, writing them would truncate the file
+        if(!blockLoader.isFinished()){
+            return;
+        }
+        if(liveDocumentSync != null){
+            saveLiveDocument();
+            return;
+        }
+        if(!blockManager.isModified()){
+            return;
+        }
+        autosaver.cancel();
+        if (file == null) {
+            return;
+        }
+        Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+        if(document != null){
+            List<String> texts = blockManager.snapshotTexts();
+            WriteCommandAction.runWriteCommandAction(project,
+                    () -> documentPatcher.applyAndSave(document, texts, FileDocumentManager.getInstance()));
+            blockManager.markSaved();
+            return;
+        }
         ApplicationManager.getApplication().runWriteAction(() ->{
-            try {
-                if (file != null) {
-                    VfsUtil.saveText(file, blockManager.extractFullMd());
-                }
+            try (OutputStream out = file.getOutputStream(this)) {
+                blockManager.writeFullMd(out, file.getCharset());
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
+            blockManager.markSaved();
         });
     }
 
+    /**
+     * Save the document of live document sync mode, which may also hold edits made in other editors.
+     */
+    private void saveLiveDocument(){
+        if(blockManager.isModified()){
+            liveDocumentSync.pushBlocks(); // text typed into the focused block since the last push
+        }
+        Document document = liveDocumentSync.getDocument();
+        FileDocumentManager fileDocumentManager = FileDocumentManager.getInstance();
+        if(fileDocumentManager.isDocumentUnsaved(document)){
+            WriteCommandAction.runWriteCommandAction(project, () -> fileDocumentManager.saveDocument(document));
+        }
+        blockManager.markSaved();
+    }
+
+    /**
+     * @return the file as seen by the autosaver, written inside a write action.
+     */
+    private Autosaver.Target getAutosaveTarget(){
+        return new Autosaver.Target() {
+            @Override
+            public Charset getCharset() {
+                return file.getCharset();
+            }
+
+            @Override
+            public long getModificationStamp() {
+                return file.getModificationStamp();
+            }
+
+            @Override
+            public void write(byte[] content) throws IOException {
+                WriteAction.run(() -> file.setBinaryContent(content));
+            }
+
+            @Override
+            public boolean patch(List<String> texts) {
+                Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+                if(document == null){
+                    return false;
+                }
+                WriteCommandAction.runWriteCommandAction(project,
+                        () -> documentPatcher.applyAndSave(document, texts, FileDocumentManager.getInstance()));
+                return true;
+            }
+        };
+    }
+
+    /**
+     * In live document sync mode, listen to the file's document once the file is loaded.
+     * The document may hold changes not yet saved to the file, so the blocks are synced with it first.
+     */
+    private void startLiveDocumentSync(){
+        if(!EditorSettings.isLiveDocumentSync()){
+            return;
+        }
+        Document document = FileDocumentManager.getInstance().getDocument(file);
+        if(document == null){
+            return;
+        }
+        liveDocumentSync = new LiveDocumentSync(blockManager, documentPatcher, document,
+                command -> WriteCommandAction.runWriteCommandAction(project, command), SwingUtilities::invokeLater);
+        liveDocumentSync.attach(this);
+        blockManager.syncBlocks(document.getText(), false);
+    }
+
+    /**
+     * Replace the blocks with the reason the file could not be opened.
+     * The loader never finishes, so nothing is ever written back to the file.
+     */
+    private void showLoadError(Exception e){
+        if(blockViewport != null){
+            scrollPane.getViewport().removeChangeListener(blockViewport); // would put the blocks back
+            blockViewport = null;
+        }
+        interiorPanel.removeAll();
+        interiorPanel.add(new JLabel("Failed to load " + file.getName() + ": " + e.getMessage()));
+        interiorPanel.revalidate();
+        interiorPanel.repaint();
+    }
+
+    /**
+     * Push the edit into the file's document in live document sync mode,
+     * otherwise schedule an autosave. Nothing happens while the file is still loading.
+     */
+    @Override
+    public void contentUpdated() {
+        if(!blockLoader.isFinished()){
+            return;
+        }
+        if(liveDocumentSync != null){
+            liveDocumentSync.pushBlocks();
+        }
+        else{
+            autosaver.schedule();
+        }
+    }
+
     /**
      * This function handles the action when the editor tab is switched.
      */
@@ -113,6 +254,10 @@ public class MarkdownEditorImpl implements MarkdownEditor {
                 // Check if the selected file is a MarkdownEditor
                 FileEditor selectedEditor = event.getNewEditor();
                 if (MarkdownEditorImpl.this.equals(selectedEditor)) {
+                    // in live document sync mode the blocks are already in step with the document
+                    if(!blockLoader.isFinished() || liveDocumentSync != null){
+                        return;
+                    }
                     saveVirtualFile(project,file);
                     updateEditor();
                 }
@@ -166,12 +311,22 @@ public class MarkdownEditorImpl implements MarkdownEditor {
         JPanel wrapper = new JPanel(new BorderLayout());
         wrapper.add(interiorPanel, BorderLayout.PAGE_START);
         scrollPane = new JBScrollPane(wrapper);
+        if(EditorSettings.isVirtualizedViewport()){
+            blockViewport = new BlockViewport(interiorPanel, scrollPane.getViewport(), blockManager);
+        }
+        if(blockManager.isLazyRendering()){
+            lazyRenderer = new LazyRenderer(interiorPanel, scrollPane.getViewport(), blockManager);
+        }
     }
 
     /**
      * Append JTextPanes to interialPanel.
      */
     private void setInitialUI(){
+        if(blockViewport != null){
+            blockViewport.refresh(true);
+            return;
+        }
         for(Block elem : blockManager.getBlockList()){
             interiorPanel.add(elem);
         }
@@ -180,22 +335,89 @@ public class MarkdownEditorImpl implements MarkdownEditor {
     /**
      * To safely render a Swing component,
      * you must call SwingUtilities.invokeLate within it.
+     * The block list is copied now, so changes queued after this call still apply on top of it.
      */
     public void updateUI() {
-        SwingUtilities.invokeLater(this::update);
+        List<Block> blocks = List.copyOf(blockManager.getBlockList());
+        TypingTracer.Trace trace = TypingTracer.current();
+        SwingUtilities.invokeLater(() -> {
+            update(blocks);
+            trace.mark(TypingTracer.Stage.UI_UPDATE);
+        });
+    }
+
+    /**
+     * Apply only the given changes to the existing UI,
+     * so layout work follows the size of the edit rather than the size of the document.
+     */
+    @Override
+    public void updateUI(List<BlockChange> changes) {
+        TypingTracer.Trace trace = TypingTracer.current();
+        SwingUtilities.invokeLater(() -> {
+            applyChanges(changes);
+            trace.mark(TypingTracer.Stage.UI_UPDATE);
+        });
     }
 
     /**
      * Get a block from blockManager and insert it into the existing UI.
      */
-    private void update(){
-        interiorPanel.removeAll();
-        for(JTextPane elem : blockManager.getBlockList()){
-            interiorPanel.add(elem);
+    private void update(List<Block> blocks){
+        if(blockViewport != null){
+            blockViewport.refresh(true);
+        }
+        else{
+            interiorPanel.removeAll();
+            for(JTextPane elem : blocks){
+                interiorPanel.add(elem);
+            }
+
+            interiorPanel.revalidate();
+            interiorPanel.repaint();
+        }
+        renderVisible();
+    }
+
+    /**
+     * Insert, remove or replace single blocks of the existing UI.
+     * Falls back to a full update if the UI is out of step with the changes.
+     */
+    private void applyChanges(List<BlockChange> changes){
+        if(blockViewport != null){
+            blockViewport.refresh(true);
+            renderVisible();
+            return;
+        }
+        for(BlockChange change : changes){
+            int idx = change.index();
+            int count = interiorPanel.getComponentCount();
+            if(idx > count || (change.type() != BlockChange.Type.INSERTED && idx == count)){
+                update(List.copyOf(blockManager.getBlockList()));
+                return;
+            }
+            switch (change.type()) {
+                case INSERTED -> interiorPanel.add(change.block(), idx);
+                case REMOVED -> interiorPanel.remove(idx);
+                case REPLACED -> {
+                    interiorPanel.remove(idx);
+                    interiorPanel.add(change.block(), idx);
+                }
+                default -> throw new IllegalStateException("Unexpected value: " + change.type());
+            }
         }
 
         interiorPanel.revalidate();
         interiorPanel.repaint();
+        renderVisible();
+    }
+
+    /**
+     * In lazy rendering mode, render the deferred blocks that are now near the visible area.
+     */
+    private void renderVisible(){
+        if(lazyRenderer != null){
+            lazyRenderer.renderVisible();
+        }
     }
 
     /**
@@ -236,7 +458,7 @@ public class MarkdownEditorImpl implements MarkdownEditor {
      */
     @Override
     public boolean isModified() {
-        return false;
+        return blockManager.isModified();
     }
 
     /**
@@ -267,10 +489,13 @@ public class MarkdownEditorImpl implements MarkdownEditor {
 
     /**
      * Usually not invoked directly, see class javadoc.
+     * Stops loading the file if the editor is closed before it finished.
+     * A pending autosave is dropped, beforeFileClosed already saved the file.
      */
     @Override
     public void dispose() {
-        // nothing to do here, so left it empty
+        blockLoader.cancel();
+        autosaver.cancel();
     }
 
     /**
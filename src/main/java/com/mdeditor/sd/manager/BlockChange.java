@@ -0,0 +1,16 @@
+package com.mdeditor.sd.manager;
+
+import com.mdeditor.sd.block.Block;
+
+/**
+ * One structural change of the block list, reported to the editor so it can patch its UI.
+ * Changes must be applied in the order they were made, index refers to the list at that moment.
+ * @param type what happened at index
+ * @param index position of the change
+ * @param block inserted block, removed block, or new block for REPLACED
+ */
+public record BlockChange(Type type, int index, Block block) {
+    public enum Type {
+        INSERTED, REMOVED, REPLACED
+    }
+}
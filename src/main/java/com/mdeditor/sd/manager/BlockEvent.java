@@ -1,9 +1,20 @@
 package com.mdeditor.sd.manager;
 
+import com.mdeditor.sd.utils.Metrics;
+
 /**
  * Type of block event occured in our editor.
  */
 public enum BlockEvent {
     NEW_BLOCK, DELETE_BLOCK, OUTFOCUS_BLOCK_UP, OUTFOCUS_BLOCK_DOWN, OUTFOCUS_CLICKED,
     TRANSFORM_MULTI, TRANSFORM_SINGLE, UPDATE_BLOCK;
+
+    private final String metricName = Metrics.EVENT_PREFIX + name();
+
+    /**
+     * @return name of the metric timing this event in BlockManager.update(), e.g. event.NEW_BLOCK
+     */
+    public String getMetricName(){
+        return metricName;
+    }
 }
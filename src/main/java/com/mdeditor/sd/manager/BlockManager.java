@@ -1,26 +1,71 @@
 package com.mdeditor.sd.manager;
 
+import com.mdeditor.sd.utils.LinePrefix;
+import com.mdeditor.sd.utils.Metrics;
+import com.mdeditor.sd.utils.ParallelRenderer;
+import com.mdeditor.sd.utils.TypingTracer;
 import com.mdeditor.sd.utils.Utils;
 import com.mdeditor.sd.block.Block;
 import com.mdeditor.sd.block.multi.MultiLine;
 import com.mdeditor.sd.block.multi.MultiLineBlock;
 import com.mdeditor.sd.block.single.SingleLineBlock;
+import com.mdeditor.sd.editor.EditorSettings;
 import com.mdeditor.sd.editor.MarkdownEditor;
+import com.vladsch.flexmark.ast.BlockQuote;
+import com.vladsch.flexmark.ast.BulletList;
+import com.vladsch.flexmark.ast.FencedCodeBlock;
+import com.vladsch.flexmark.ast.Heading;
+import com.vladsch.flexmark.ast.IndentedCodeBlock;
+import com.vladsch.flexmark.ast.OrderedList;
+import com.vladsch.flexmark.ast.Paragraph;
+import com.vladsch.flexmark.ast.ThematicBreak;
+import com.vladsch.flexmark.ext.tables.TableBlock;
 import com.vladsch.flexmark.util.ast.Node;
 import org.apache.commons.lang3.tuple.Pair;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import javax.swing.*;
+import java.io.*;
+import java.nio.charset.Charset;
 import java.util.*;
 
 public class BlockManager {
-    private List<Block> blockList;
+    private static final int WRITE_BUFFER_SIZE = 8192;
+    /**
+     * MultiLine type of top-level flexmark nodes, identical to what the first tag of their HTML gives.
+     */
+    private static final Map<Class<? extends Node>, MultiLine> NODE_TYPES = Map.of(
+            BulletList.class, MultiLine.UL,
+            OrderedList.class, MultiLine.OL,
+            BlockQuote.class, MultiLine.BLOCK_QUOTE,
+            FencedCodeBlock.class, MultiLine.CODE_BLOCK,
+            IndentedCodeBlock.class, MultiLine.CODE_BLOCK,
+            TableBlock.class, MultiLine.TABLE,
+            Heading.class, MultiLine.NONE,
+            Paragraph.class, MultiLine.NONE,
+            ThematicBreak.class, MultiLine.NONE
+    );
+
+    private final BlockSequence blockList;
     private final MarkdownEditor mdEditor;
     private Block blockOnFocus;
+    private final List<BlockChange> pendingChanges; // structural changes not yet sent to mdEditor
+    private final Set<Block> dirtyBlocks; // blocks in blockList whose text changed since the last save
+    private boolean structureModified; // blocks inserted, removed or replaced since the last save
+    private long modificationCount; // grows with every text or structural change of blockList
+    private final boolean lazyRendering; // blocks from the file wait for the editor to render them
 
     public BlockManager(MarkdownEditor mdE) {
-        this.blockList = new LinkedList<>();
+        this.blockList = new BlockSequence();
         this.mdEditor = mdE;
+        this.lazyRendering = EditorSettings.isLazyRendering();
+        this.pendingChanges = new ArrayList<>();
+        this.dirtyBlocks = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.blockList.setChangeListener(change -> {
+            pendingChanges.add(change);
+            structureModified = true;
+            modificationCount++;
+        });
     }
 
     /**
@@ -36,6 +81,16 @@ public class BlockManager {
      * @param pos Primitive caret position
      */
     public void update(Block block, BlockEvent e, int pos) {
+        long start = Metrics.start();
+        handleEvent(block, e, pos);
+        mdEditor.contentUpdated();
+        Metrics.stop(e.getMetricName(), start);
+    }
+
+    /**
+     * Body of update(), before mdEditor is told about the edit.
+     */
+    private void handleEvent(Block block, BlockEvent e, int pos) {
         int idx = blockList.indexOf(block);
         blockOnFocus.setMdText(blockOnFocus.getText().strip());
 
@@ -95,15 +150,12 @@ public class BlockManager {
             }
             case TRANSFORM_MULTI -> {
                 Block newBlock = new MultiLineBlock(this, "");
-                String pre = Utils.getPrefix(block, 0);
-                if(Utils.isOL(pre)){
-                    pre = String.valueOf(Integer.parseInt(pre.substring(0, pre.length() - 1)) + 1) + ".";
-                }
+                LinePrefix prefix = LinePrefix.of(block, 0);
+                String pre = prefix.isOrdered() ? (prefix.number() + 1) + "." : prefix.text();
                 newBlock.setMdText(block.getMdText() + "\n" + pre + " ");
                 caretPos += pre.length() + 1;
 
-                blockList.add(idx, newBlock);
-                blockList.remove(block);
+                blockList.set(idx, newBlock);
                 block.destruct();
 
                 blockOnFocus = newBlock;
@@ -113,8 +165,7 @@ public class BlockManager {
                 Block newBlock = new SingleLineBlock(this);
                 newBlock.setMdText(block.getMdText());
 
-                blockList.add(idx, newBlock);
-                blockList.remove(block);
+                blockList.set(idx, newBlock);
                 block.destruct();
             }
             default -> throw new IllegalStateException("Unexpected value: " + e);
@@ -126,104 +177,181 @@ public class BlockManager {
         return this.blockList;
     }
 
+    /**
+     * @return the same blocks as getBlockList(), with the position and height queries of BlockSequence.
+     */
+    public BlockSequence getBlockSequence(){
+        return this.blockList;
+    }
+
+    /**
+     * @return block currently being edited.
+     */
+    public Block getBlockOnFocus(){
+        return this.blockOnFocus;
+    }
+
     /**
      * Extract mdText sequentially from every block.
      * @return Full Markdown text which will be saved into the (virtual) file.
      */
     public String extractFullMd(){
-        StringBuilder fullMd = new StringBuilder();
+        StringWriter fullMd = new StringWriter();
+        try {
+            writeFullMd(fullMd);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return fullMd.toString();
+    }
+
+    /**
+     * Write the same text as extractFullMd() block by block,
+     * without ever holding the whole document in memory.
+     * @param out destination, not closed by this method
+     */
+    public void writeFullMd(Writer out) throws IOException {
+        writeFullMd(snapshotTexts(), out);
+    }
+
+    /**
+     * @return text of every block as extractFullMd() writes it, in order.
+     * Only references are copied, so the snapshot is cheap and can be written from another thread.
+     */
+    public List<String> snapshotTexts(){
+        List<String> texts = new ArrayList<>(blockList.size());
         for(Block block : blockList){
-            if(block == blockOnFocus){
-                fullMd.append(block.getText());
-            }
-            else{
-                fullMd.append(block.getMdText());
-            }
+            texts.add(block == blockOnFocus ? block.getText() : block.getMdText());
+        }
+        return texts;
+    }
 
-            fullMd.append("\n\n");
+    /**
+     * Write texts taken by snapshotTexts() in the format of extractFullMd().
+     * @param out destination, not closed by this method
+     */
+    public static void writeFullMd(List<String> texts, Writer out) throws IOException {
+        for(String text : texts){
+            out.write(text);
+            out.write("\n\n");
         }
-        return fullMd.toString();
+    }
+
+    /**
+     * Encode the text of extractFullMd() into out through a fixed-size buffer.
+     * @param out destination, flushed but not closed by this method
+     * @param charset encoding of the file
+     */
+    public void writeFullMd(OutputStream out, Charset charset) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset), WRITE_BUFFER_SIZE);
+        writeFullMd(writer);
+        writer.flush();
     }
 
     /**
      * parse the block which is at BlockList[idx]
+     * A block starting with a list, quote or table marker becomes a MultiLineBlock up to the first line
+     * with another marker; every other line before it becomes a SingleLineBlock of its own.
+     * The last line of a block is never checked. A one-line marker block also parses the block after it.
+     * Runs in one pass over the text of the parsed blocks.
      * @param idx - the integer of Block's index. Must have value between 0 ~ BlockList.length()
      */
     public void blockParse(int idx){
         if(idx < 0 || idx > blockList.size()){
             return;
         }
-        int nl_idx = 0;
-        int line_idx = 0;
-        Block temp = this.blockList.get(idx);
-        String str = temp.getMdText();
-        String prefix = "";
-        String newSingleStr = "";
-        String newMultiStr = "";
-        String sliced = "";
-        int prefix_len = 0;
-        boolean is_last_line = false;
-        if(!Utils.getPrefix(temp, 0).isEmpty()){
-            prefix = Utils.getPrefix(temp, 0);
-            prefix_len = prefix.length();
-            boolean isPrefixOl = Utils.isOL(prefix);
-            if(temp instanceof SingleLineBlock){
-                blockList.remove(temp);
-                temp = new MultiLineBlock(this, prefix);
-                temp.setMdText(str);
-                blockList.add(idx, temp);
+        while(idx < blockList.size()){
+            Block block = blockList.get(idx);
+            List<Block> parsed = new ArrayList<>();
+            boolean parseNext = splitBlock(block, parsed);
+            replaceBlock(idx, block, parsed);
+            if(!parseNext){
+                return;
             }
+            idx += parsed.size();
+        }
+    }
 
-            while(str.indexOf("\n", nl_idx) != -1 || is_last_line){
-                if(is_last_line){
-                    break;
-                }
-                sliced = Utils.getPrefix(temp, line_idx);//str.substring(nl_idx, nl_idx + prefix_len);
-                if((!sliced.equals(prefix) && !isPrefixOl) || (isPrefixOl && !Utils.isOL(sliced))){
-                    newSingleStr = str.substring(nl_idx);
-                    if(newSingleStr.endsWith("\n")){
-                        newSingleStr = newSingleStr.substring(0, newSingleStr.length() - 1);
-                    }
-                    newMultiStr = str.substring(0,nl_idx);
-                    if(newMultiStr.endsWith("\n")){
-                        newMultiStr = newMultiStr.substring(0, newMultiStr.length() - 1);
-                    }
-                    MultiLineBlock curBlock = new MultiLineBlock(this, prefix);
-                    SingleLineBlock newBlock = new SingleLineBlock(this);
-                    newBlock.setMdText(newSingleStr);
-                    curBlock.setMdText(newMultiStr);
-                    blockList.remove(temp);
-                    blockList.add(idx, curBlock);
-                    blockList.add(idx + 1,newBlock);
-                    break;
-                }
-                nl_idx = str.indexOf("\n", nl_idx) + 1;
-                line_idx++;
-                if(str.indexOf("\n", nl_idx + 1) == -1){
-                    is_last_line = true;
+    /**
+     * Split the text of block into the blocks blockParse() turns it into.
+     * block itself is reused for the part that keeps its type, as blockParse() always did.
+     * @param parsed receives the resulting blocks in order
+     * @return true if the block after it has to be parsed as well
+     */
+    private boolean splitBlock(Block block, List<Block> parsed){
+        String str = block.getMdText();
+        Block holder = block; // block that takes the rest of the text
+        int base = 0;
+        int end = str.length();
+        while(true){
+            int lineEnd = lineEnd(str, base, end);
+            LinePrefix first = LinePrefix.at(str, base, lineEnd);
+            if(!first.isMarker()){
+                if(lineEnd == end){
+                    parsed.add(withText(holder, str.substring(base, end)));
+                    return false;
                 }
+                parsed.add(withText(new SingleLineBlock(this), str.substring(base, lineEnd)));
+                base = lineEnd + 1;
+                continue;
             }
-        }
-        else{
-            if(str.indexOf("\n", nl_idx) == -1){
-                is_last_line = true;
+
+            if(holder instanceof SingleLineBlock){
+                holder = new MultiLineBlock(this, first.text());
+            }
+            if(lineEnd == end){
+                parsed.add(withText(holder, str.substring(base, end)));
+                return true;
             }
-            if(!is_last_line){
-                nl_idx = str.indexOf("\n", nl_idx);
-                newSingleStr = str.substring(0, nl_idx + 1);
-                if(newSingleStr.endsWith("\n")){
-                    newSingleStr = newSingleStr.substring(0, newSingleStr.length() - 1);
+            // a line is only checked while another line break follows its first character
+            int lineStart = lineEnd + 1;
+            int split = -1;
+            while(split == -1 && lineEnd(str, lineStart + 1, end) < end){
+                int nextEnd = lineEnd(str, lineStart, end);
+                LinePrefix sliced = LinePrefix.at(str, lineStart, nextEnd);
+                if((!sliced.sameAs(first) && !first.isOrdered()) || (first.isOrdered() && !sliced.isOrdered())){
+                    split = lineStart;
                 }
-                SingleLineBlock newBlock = new SingleLineBlock(this);
-                newBlock.setMdText(newSingleStr);
-                blockList.add(idx,newBlock);
-                temp.setMdText(str.substring(nl_idx+1));
+                lineStart = nextEnd + 1;
             }
+            if(split == -1){
+                parsed.add(withText(holder, str.substring(base, end)));
+                return false;
+            }
+            parsed.add(withText(new MultiLineBlock(this, first.text()), str.substring(base, split - 1)));
+            if(end > split && str.charAt(end - 1) == '\n'){
+                end--;
+            }
+            holder = new SingleLineBlock(this);
+            base = split;
         }
-        if(!is_last_line && idx + 1 < blockList.size()){
-            blockParse(idx+1);
-        }
+    }
 
+    /**
+     * @return offset of the first line break in str[from, end), or end if there is none.
+     */
+    private static int lineEnd(String str, int from, int end){
+        int nl = from < end ? str.indexOf('\n', from) : -1;
+        return nl == -1 || nl >= end ? end : nl;
+    }
+
+    private static Block withText(Block block, String mdText){
+        block.setMdText(mdText);
+        return block;
+    }
+
+    /**
+     * Put blocks in place of the block at blockList[idx].
+     * If block is one of them it keeps its place in blockList, the others are inserted around it.
+     */
+    private void replaceBlock(int idx, Block block, List<Block> blocks){
+        int keep = blocks.indexOf(block);
+        if(keep == -1){
+            blockList.set(idx, blocks.get(0));
+            keep = 0;
+        }
+        blockList.addAll(idx, blocks.subList(0, keep));
+        blockList.addAll(idx + keep + 1, blocks.subList(keep + 1, blocks.size()));
     }
 
     /**
@@ -231,20 +359,30 @@ public class BlockManager {
      * @param markdownString All text from original file
      */
     public void setBlocks(String markdownString){
+        setParsedBlocks(parseString(markdownString));
+    }
+
+    /**
+     * Initial blockList setup from already parsed blocks.
+     * @param parsedBlocks blocks to show, in order. An empty list gives one empty block.
+     */
+    public void setParsedBlocks(List<ParsedBlock> parsedBlocks){
         blockList.clear();
-        blockList = parseStringIntoBlocks(markdownString);
+        for(ParsedBlock parsed : parsedBlocks){
+            blockList.add(createBlock(parsed));
+        }
 
         if(blockList.isEmpty()){
             blockList.add(new SingleLineBlock(this));
         }
 
-        for(Block block : blockList){
-            block.renderHTML();
-        }
+        renderOrDefer(blockList);
 
         blockOnFocus = blockList.get(0);
         blockOnFocus.renderMD();
 
+        pendingChanges.clear();
+        markSaved();
         mdEditor.updateUI();
         SwingUtilities.invokeLater(()->{
             blockOnFocus.requestFocusInWindow();
@@ -253,6 +391,165 @@ public class BlockManager {
 
     }
 
+    /**
+     * Append already parsed blocks after the last block, e.g. while a large file is still loading.
+     * Focus and caret stay where they are.
+     * @param parsedBlocks blocks to append, in order.
+     */
+    public void appendParsedBlocks(List<ParsedBlock> parsedBlocks){
+        List<Block> blocks = new ArrayList<>();
+        for(ParsedBlock parsed : parsedBlocks){
+            blocks.add(createBlock(parsed));
+        }
+        renderOrDefer(blocks);
+        boolean modified = structureModified;
+        blockList.addAll(blocks);
+        structureModified = modified; // appended blocks come from the file
+        flushChanges();
+    }
+
+    /**
+     * Bring blockList in line with markdownString without rebuilding it.
+     * Leading and trailing blocks whose text and type are unchanged are kept as they are,
+     * together with their rendered HTML; only the blocks in between are replaced.
+     * Falls back to setBlocks when there are no blocks yet.
+     * @param markdownString All text from original file
+     */
+    public void syncBlocks(String markdownString){
+        syncBlocks(markdownString, true);
+    }
+
+    /**
+     * Same as syncBlocks(markdownString), optionally without moving the keyboard focus to blockOnFocus,
+     * e.g. while the user is typing in another editor of the same file.
+     * @param markdownString All text from original file
+     * @param requestFocus true to focus blockOnFocus and restore its caret afterwards
+     */
+    public void syncBlocks(String markdownString, boolean requestFocus){
+        if(blockList.isEmpty() || blockOnFocus == null){
+            setBlocks(markdownString);
+            return;
+        }
+
+        List<ParsedBlock> parsed = parseString(markdownString);
+        if(parsed.isEmpty()){
+            parsed = List.of(new ParsedBlock("", MultiLine.NONE));
+        }
+
+        int oldSize = blockList.size();
+        int newSize = parsed.size();
+        int common = Math.min(oldSize, newSize);
+
+        int prefix = 0;
+        while(prefix < common && parsed.get(prefix).matches(blockList.get(prefix))){
+            prefix++;
+        }
+        int suffix = 0;
+        while(suffix < common - prefix
+                && parsed.get(newSize - 1 - suffix).matches(blockList.get(oldSize - 1 - suffix))){
+            suffix++;
+        }
+        if(prefix + suffix == oldSize && oldSize == newSize){
+            markSaved();
+            return;
+        }
+
+        boolean focusRemoved = false;
+        for(int i = oldSize - suffix - 1; i >= prefix; i--){
+            Block removed = blockList.remove(i);
+            focusRemoved |= removed == blockOnFocus;
+            removed.destruct();
+        }
+        List<Block> inserted = new ArrayList<>();
+        for(int i = prefix; i < newSize - suffix; i++){
+            inserted.add(createBlock(parsed.get(i)));
+        }
+        renderOrDefer(inserted);
+        blockList.addAll(prefix, inserted);
+
+        int caretPos = blockOnFocus.getCaretPosition();
+        if(focusRemoved){
+            blockOnFocus = blockList.get(Math.min(prefix, blockList.size() - 1));
+            blockOnFocus.renderMD();
+            caretPos = 0;
+        }
+        markSaved();
+        if(requestFocus){
+            renderAll(caretPos);
+        }
+        else{
+            renderBlocks();
+        }
+    }
+
+    /**
+     * Called by a block whenever its mdText changes.
+     * Blocks not in blockList yet are ignored, their insertion is recorded as a structural change.
+     */
+    public void blockTextChanged(Block block){
+        if(blockList.contains(block)){
+            dirtyBlocks.add(block);
+            modificationCount++;
+            blockList.textChanged(block);
+        }
+    }
+
+    /**
+     * @return offset of block in the text of extractFullMd() in O(log n), or -1 if it is not in blockList.
+     * Text typed into blockOnFocus counts once it is stored as mdText.
+     */
+    public int offsetOf(Block block){
+        return blockList.offsetOf(block);
+    }
+
+    /**
+     * @return block containing offset of the text of extractFullMd() in O(log n),
+     * the blank line after a block belongs to it. null if offset is out of range.
+     */
+    public Block blockAt(int offset){
+        return blockList.blockAt(offset);
+    }
+
+    /**
+     * @return a number that changes whenever the text or the structure of blockList changes.
+     * Typing in the focused block is not counted until it is stored as mdText.
+     */
+    public long getModificationCount(){
+        return modificationCount;
+    }
+
+    /**
+     * @return true if extractFullMd() may differ from what was last loaded or saved.
+     */
+    public boolean isModified(){
+        if(structureModified || !dirtyBlocks.isEmpty()){
+            return true;
+        }
+        return blockOnFocus != null && blockOnFocus.getContentType().equals("text/plain")
+                && !blockOnFocus.getText().equals(blockOnFocus.getMdText());
+    }
+
+    /**
+     * Mark every block clean, e.g. after the document was written to or read from the file.
+     */
+    public void markSaved(){
+        for(Block block : blockList){
+            block.markClean();
+        }
+        dirtyBlocks.clear();
+        structureModified = false;
+    }
+
+    /**
+     * markSaved() if nothing changed since getModificationCount() returned modificationCount,
+     * e.g. after a snapshot taken at that time was written to the file.
+     */
+    public void markSaved(long modificationCount){
+        if(this.modificationCount == modificationCount){
+            markSaved();
+        }
+    }
+
     /**
      * For every block in blockList, call renderHTML if block is not focused,
      * blockOnFocus calls (overridden) requestFocusInWindow
@@ -260,119 +557,203 @@ public class BlockManager {
      * @param caretPos caret position under pretreatment
      */
     public void renderAll(int caretPos){
-        for(Block block : blockList){
-            if(block != blockOnFocus && !block.getContentType().equals("text/html")){
-                block.renderHTML();
-            }
-        }
-
-        mdEditor.updateUI();
+        TypingTracer.Trace trace = TypingTracer.current();
+        renderBlocks();
+        trace.mark(TypingTracer.Stage.RENDER);
 
         int pos = (caretPos == -1 || caretPos > blockOnFocus.getMdText().length()) ?
                 blockOnFocus.getMdText().length() : Math.max(0, caretPos);
         SwingUtilities.invokeLater(()->{
             blockOnFocus.requestFocusInWindow();
             blockOnFocus.setCaretPosition(pos);
+            trace.caretRestored();
         });
     }
 
+    /**
+     * Render every block except blockOnFocus that is not shown as HTML, then send pending changes to mdEditor.
+     * Blocks whose rendering is deferred are left to the editor.
+     */
+    private void renderBlocks(){
+        List<Block> toRender = new ArrayList<>();
+        for(Block block : blockList){
+            if(block != blockOnFocus && !block.getContentType().equals("text/html") && !block.isRenderDeferred()){
+                toRender.add(block);
+            }
+        }
+        ParallelRenderer.renderHTML(toRender);
+
+        flushChanges();
+    }
+
+    /**
+     * Render blocks now, or in lazy rendering mode only show their mdText until the editor renders them.
+     */
+    private void renderOrDefer(List<? extends Block> blocks){
+        if(!lazyRendering){
+            ParallelRenderer.renderHTML(blocks);
+            return;
+        }
+        for(Block block : blocks){
+            if(block.needsRenderHTML()){
+                block.deferRenderHTML();
+            }
+        }
+    }
+
+    /**
+     * @return true if blocks loaded from the file are rendered only once they come near the visible area.
+     * @see EditorSettings#isLazyRendering()
+     */
+    public boolean isLazyRendering(){
+        return lazyRendering;
+    }
+
+    /**
+     * Send the structural changes made since the last flush to mdEditor, in order.
+     * Nothing is sent when the block list did not change.
+     */
+    private void flushChanges(){
+        if(pendingChanges.isEmpty()){
+            return;
+        }
+        List<BlockChange> changes = List.copyOf(pendingChanges);
+        pendingChanges.clear();
+        mdEditor.updateUI(changes);
+    }
+
     /**
      * @param markdownString Markdown string that wants to know the start/end index of the table
      * @return start index and end index of table from input string as a pair.
      * If there is no table, then return {-1, -1}.
      */
     public Pair<Integer, Integer> getTableIndexFromMarkdownString(String markdownString){
-        List<Block> blocks = parseStringIntoBlocks(markdownString);
-        for(Block block : blocks){
-            if(block instanceof MultiLineBlock && ((MultiLineBlock) block).getType() == MultiLine.TABLE){
-                Integer startIndex = markdownString.indexOf(block.getMdText());
-                Integer endIndex = startIndex + block.getMdText().length() - 1;
+        for(ParsedBlock parsed : parseString(markdownString)){
+            if(parsed.type() == MultiLine.TABLE){
+                int startIndex = parsed.offset();
+                int endIndex = startIndex + parsed.mdText().length() - 1;
                 return Pair.of(startIndex, endIndex);
             }
         }
         return Pair.of(-1, -1);
     }
 
-
     /**
      * @param markdownString markdown string to parse into blocks.
      * @return list of Block, which contains only mdText.
      */
     public List<Block> parseStringIntoBlocks(String markdownString){
-        List<Block> blocks = new LinkedList<>();
-        for(Node child : Utils.flexmarkParse(markdownString).getChildren()){
-            Document doc = Jsoup.parse(Utils.flexmarkHtmlRender(child));
-            String tagName = doc.select("body > *").get(0).tagName();
+        List<Block> blocks = new ArrayList<>();
+        for(ParsedBlock parsed : parseString(markdownString)){
+            blocks.add(createBlock(parsed));
+        }
 
-            Block block;
-            if(MultiLine.isMultiLine(tagName)){
-                block = new MultiLineBlock(this, "");
-                ((MultiLineBlock) block).setType(MultiLine.fromString(tagName));
-            }
-            else{
-                block = new SingleLineBlock(this);
+        return blocks;
+    }
+
+    /**
+     * Parse markdown string without creating any Block.
+     * @param markdownString markdown string to parse.
+     * @return text, MultiLine type and position of every top-level node, in order.
+     */
+    public List<ParsedBlock> parseString(String markdownString){
+        long start = Metrics.start();
+        List<ParsedBlock> parsedBlocks = new ArrayList<>();
+        for(Node child : Utils.flexmarkParse(markdownString).getChildren()){
+            MultiLine type = classify(child);
+            String chars = child.getChars().toString();
+            int leading = 0;
+            while(leading < chars.length() && chars.charAt(leading) <= ' '){
+                leading++;
             }
+            String markdownText = chars.trim();
+            parsedBlocks.add(new ParsedBlock(markdownText, type, child.getStartOffset() + leading));
+        }
 
-            String markdownText = child.getChars().toString().trim();
-            block.setMdText(markdownText);
+        Metrics.stop(Metrics.PARSE, start);
+        Metrics.record(Metrics.DOCUMENT_BLOCKS, parsedBlocks.size());
+        return parsedBlocks;
+    }
 
-            blocks.add(block);
+    /**
+     * Classify a top-level node by its flexmark class, without rendering it.
+     * Other nodes (e.g. raw HTML blocks) are classified by the first tag of their rendered HTML.
+     * @return MultiLine type of node, NONE if it belongs to a SingleLineBlock.
+     */
+    public static MultiLine classify(Node node){
+        MultiLine type = NODE_TYPES.get(node.getClass());
+        if(type != null){
+            return type;
         }
+        Document doc = Jsoup.parse(Utils.flexmarkHtmlRender(node));
+        return MultiLine.fromString(doc.select("body > *").get(0).tagName());
+    }
 
-        return blocks;
+    /**
+     * @return new block holding the text of parsed, MultiLineBlock unless its type is NONE.
+     */
+    private Block createBlock(ParsedBlock parsed){
+        Block block;
+        if(parsed.type() != MultiLine.NONE){
+            block = new MultiLineBlock(this, "");
+            ((MultiLineBlock) block).setType(parsed.type());
+        }
+        else{
+            block = new SingleLineBlock(this);
+        }
+        block.setMdText(parsed.mdText());
+        block.markClean(); // text comes from the file
+        return block;
     }
 
     /**
      * Merges block if block has the same type with surrounding blocks after text update
+     * The whole run of MultiLineBlocks around idx with the same marker, or any ordered list marker,
+     * is joined into its first block in one pass. Focus on a merged block moves to that first block.
      * @param idx block number which we inspect now
      */
     public void mergeBlock(int idx){
         if(idx < 0 || idx > blockList.size()){
             return;
         }
-        int curIdx = idx;
-        Block cur;
-        Block up;
-        Block down;
-        if(idx > 0){
-            cur = blockList.get(curIdx);
-            up = blockList.get(curIdx - 1);
-            if(cur instanceof MultiLineBlock && up instanceof MultiLineBlock){
-                String curPre = Utils.getPrefix(cur, 0);
-                String upPre = Utils.getPrefix(up, 0);
-                if(curPre.equals(upPre) || (Utils.isOL(curPre) && Utils.isOL(upPre))){
-                    up.setMdText(up.getMdText() + "\n" + cur.getMdText());
-                    if(blockOnFocus == cur){
-                        blockOnFocus = blockList.get(curIdx + 1);
-                        blockOnFocus.renderMD();
-                    }
-                    blockList.remove(cur);
-                    cur.destruct();
-                    curIdx--;
-                    mergeBlock(curIdx);
-                }
+        int first = idx;
+        int last = idx;
+        Block block = blockList.get(idx);
+        if(block instanceof MultiLineBlock){
+            LinePrefix prefix = LinePrefix.of(block, 0);
+            while(first > 0 && canMerge(prefix, blockList.get(first - 1))){
+                first--;
+            }
+            while(last < blockList.size() - 1 && canMerge(prefix, blockList.get(last + 1))){
+                last++;
             }
         }
-        if(idx < blockList.size() - 1){
-            cur = blockList.get(curIdx);
-            down = blockList.get(curIdx + 1);
-            if(cur instanceof MultiLineBlock && down instanceof MultiLineBlock){
-                String curPre = Utils.getPrefix(cur, 0);
-                String downPre = Utils.getPrefix(down, 0);
-                if(curPre.equals(downPre) || (Utils.isOL(curPre) && Utils.isOL(downPre))){
-                    cur.setMdText(cur.getMdText() + "\n" + down.getMdText());
-                    if(blockOnFocus == down){
-                        blockOnFocus = cur;
-                        blockOnFocus.renderMD();
-                    }
-                    blockList.remove(down);
-                    down.destruct();
-                    mergeBlock(curIdx);
+
+        Block merged = blockList.get(first);
+        if(first < last){
+            StringBuilder text = new StringBuilder(merged.getMdText());
+            for(int i = first + 1; i <= last; i++){
+                text.append('\n').append(blockList.get(i).getMdText());
+            }
+            merged.setMdText(text.toString());
+            for(int i = last; i > first; i--){
+                Block removed = blockList.remove(i);
+                if(blockOnFocus == removed){
+                    blockOnFocus = merged;
                 }
+                removed.destruct();
             }
         }
-        blockList.get(curIdx).renderMD();
-        blockList.get(curIdx).renderHTML();
+        merged.renderMD();
+        merged.renderHTML();
+    }
+
+    private static boolean canMerge(LinePrefix prefix, Block other){
+        if(!(other instanceof MultiLineBlock)){
+            return false;
+        }
+        LinePrefix otherPrefix = LinePrefix.of(other, 0);
+        return otherPrefix.sameAs(prefix) || (otherPrefix.isOrdered() && prefix.isOrdered());
     }
 
     /**
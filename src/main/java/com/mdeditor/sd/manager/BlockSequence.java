@@ -0,0 +1,527 @@
+package com.mdeditor.sd.manager;
+
+import com.mdeditor.sd.block.Block;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Ordered sequence of blocks used by BlockManager.
+ * Blocks are kept in an implicit treap (a randomized balanced tree keyed by position),
+ * and every block is mapped by identity to its tree node.
+ * get, add, remove and indexOf therefore run in O(log n) instead of O(n) of a LinkedList.
+ * A block may appear in the sequence at most once.
+ * Every insert, remove and replace is reported to the change listener, clear() is not.
+ * Nodes also sum up the text length of their subtree, mdText plus the blank line written after it
+ * by BlockManager.extractFullMd(), so offsetOf and blockAt map blocks to text offsets in O(log n).
+ * A block's length is taken when it is added; call textChanged after its mdText changed.
+ * In the same way nodes sum up the pixel height of their subtree, as estimated by the height estimator
+ * or measured with setHeight, so topOf and indexAtY map blocks to vertical positions in O(log n).
+ */
+public class BlockSequence extends AbstractList<Block> implements RandomAccess {
+    private static final int SEPARATOR_LENGTH = 2; // "\n\n" after every block
+
+    private static final class Node {
+        private final int priority;
+        private Block block;
+        private Node left;
+        private Node right;
+        private Node parent;
+        private int size;
+        private int length; // text length of block including the separator
+        private int textLength; // sum of length over the subtree
+        private int height; // estimated or measured height of block in pixels
+        private int totalHeight; // sum of height over the subtree
+
+        private Node(Block block, int priority, int height){
+            this.block = block;
+            this.priority = priority;
+            this.size = 1;
+            this.length = lengthOf(block);
+            this.textLength = length;
+            this.height = height;
+            this.totalHeight = height;
+        }
+    }
+
+    private final Map<Block, Node> nodes;
+    private final Random random;
+    private Node root;
+    private Consumer<BlockChange> changeListener;
+    private ToIntFunction<Block> heightEstimator; // null estimates every height as 0
+
+    public BlockSequence(){
+        this.nodes = new IdentityHashMap<>();
+        this.random = new Random();
+    }
+
+    public BlockSequence(Collection<? extends Block> blocks){
+        this();
+        addAll(blocks);
+    }
+
+    @Override
+    public int size(){
+        return size(root);
+    }
+
+    @Override
+    public Block get(int index){
+        Objects.checkIndex(index, size());
+        return nodeAt(index).block;
+    }
+
+    @Override
+    public Block set(int index, Block block){
+        Objects.checkIndex(index, size());
+        Node node = nodeAt(index);
+        if(node.block == block){
+            return block;
+        }
+        requireAbsent(block);
+
+        Block old = node.block;
+        nodes.remove(old);
+        node.block = block;
+        nodes.put(block, node);
+        node.height = estimateHeight(block);
+        update(node);
+        fireChange(BlockChange.Type.REPLACED, index, block);
+        return old;
+    }
+
+    @Override
+    public void add(int index, Block block){
+        Objects.checkIndex(index, size() + 1);
+        requireAbsent(block);
+
+        Node node = new Node(block, random.nextInt(), estimateHeight(block));
+        nodes.put(block, node);
+        Node[] parts = split(root, index);
+        root = detach(merge(merge(parts[0], node), parts[1]));
+        modCount++;
+        fireChange(BlockChange.Type.INSERTED, index, block);
+    }
+
+    @Override
+    public Block remove(int index){
+        Objects.checkIndex(index, size());
+        Node[] head = split(root, index);
+        Node[] tail = split(head[1], 1);
+        Node removed = tail[0];
+        root = detach(merge(head[0], tail[1]));
+
+        nodes.remove(removed.block);
+        modCount++;
+        fireChange(BlockChange.Type.REMOVED, index, removed.block);
+        return removed.block;
+    }
+
+    @Override
+    public boolean remove(Object o){
+        int index = indexOf(o);
+        if(index < 0){
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    /**
+     * @return position of the block in O(log n), or -1 if it is not in this sequence.
+     */
+    @Override
+    public int indexOf(Object o){
+        Node node = nodes.get(o);
+        if(node == null){
+            return -1;
+        }
+        int index = size(node.left);
+        while(node.parent != null){
+            if(node.parent.right == node){
+                index += size(node.parent.left) + 1;
+            }
+            node = node.parent;
+        }
+        return index;
+    }
+
+    @Override
+    public int lastIndexOf(Object o){
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o){
+        return nodes.containsKey(o);
+    }
+
+    /**
+     * Take the new length of block after its mdText changed, and estimate its height again. O(log n).
+     * Nothing happens if block is not in this sequence.
+     */
+    public void textChanged(Block block){
+        Node node = nodes.get(block);
+        if(node != null){
+            node.height = estimateHeight(block);
+            update(node);
+        }
+    }
+
+    /**
+     * Estimate the height of every block with estimator, now for the blocks in this sequence in O(n),
+     * later whenever a block is added or its text changed.
+     * @param estimator height of a block in pixels, or null to estimate every height as 0
+     */
+    public void setHeightEstimator(ToIntFunction<Block> estimator){
+        this.heightEstimator = estimator;
+        for(Node node = first(root); node != null; node = successor(node)){
+            node.height = estimateHeight(node.block);
+        }
+        sumHeights(root);
+    }
+
+    /**
+     * Replace the height of block, e.g. by its height after layout. O(log n).
+     * Nothing happens if block is not in this sequence.
+     */
+    public void setHeight(Block block, int height){
+        Node node = nodes.get(block);
+        if(node != null && node.height != height){
+            node.height = height;
+            update(node);
+        }
+    }
+
+    /**
+     * @return height of block in pixels, or 0 if it is not in this sequence.
+     */
+    public int heightOf(Block block){
+        Node node = nodes.get(block);
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * @return height of all blocks stacked.
+     */
+    public int totalHeight(){
+        return totalHeight(root);
+    }
+
+    /**
+     * @return sum of the heights of the blocks before block in O(log n), or -1 if it is not in this sequence.
+     */
+    public int topOf(Block block){
+        Node node = nodes.get(block);
+        if(node == null){
+            return -1;
+        }
+        int top = totalHeight(node.left);
+        while(node.parent != null){
+            if(node.parent.right == node){
+                top += totalHeight(node.parent.left) + node.parent.height;
+            }
+            node = node.parent;
+        }
+        return top;
+    }
+
+    /**
+     * @return index of the block covering y in O(log n), 0 above the first block
+     * and the last index below the last one, -1 if this sequence is empty.
+     */
+    public int indexAtY(int y){
+        Node node = root;
+        int index = 0;
+        if(y < 0){
+            return root == null ? -1 : 0;
+        }
+        while(node != null){
+            int leftHeight = totalHeight(node.left);
+            if(y < leftHeight){
+                node = node.left;
+            }
+            else if(y < leftHeight + node.height || node.right == null){
+                return index + size(node.left);
+            }
+            else{
+                y -= leftHeight + node.height;
+                index += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return size() - 1;
+    }
+
+    /**
+     * @return length of the text of all blocks, as written by BlockManager.extractFullMd().
+     */
+    public int textLength(){
+        return textLength(root);
+    }
+
+    /**
+     * @return offset of the first character of block in the text of all blocks in O(log n),
+     * or -1 if it is not in this sequence.
+     */
+    public int offsetOf(Block block){
+        Node node = nodes.get(block);
+        if(node == null){
+            return -1;
+        }
+        int offset = textLength(node.left);
+        while(node.parent != null){
+            if(node.parent.right == node){
+                offset += textLength(node.parent.left) + node.parent.length;
+            }
+            node = node.parent;
+        }
+        return offset;
+    }
+
+    /**
+     * @return block whose text or following separator contains offset in O(log n),
+     * or null if offset is outside the text of all blocks.
+     */
+    public Block blockAt(int offset){
+        if(offset < 0 || offset >= textLength()){
+            return null;
+        }
+        Node node = root;
+        while(true){
+            int leftLength = textLength(node.left);
+            if(offset < leftLength){
+                node = node.left;
+            }
+            else if(offset < leftLength + node.length){
+                return node.block;
+            }
+            else{
+                offset -= leftLength + node.length;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public void clear(){
+        root = null;
+        nodes.clear();
+        modCount++;
+    }
+
+    /**
+     * @param listener called after every insert, remove and replace, or null for none.
+     */
+    public void setChangeListener(Consumer<BlockChange> listener){
+        this.changeListener = listener;
+    }
+
+    private void fireChange(BlockChange.Type type, int index, Block block){
+        if(changeListener != null){
+            changeListener.accept(new BlockChange(type, index, block));
+        }
+    }
+
+    /**
+     * In-order traversal following parent links, O(1) amortized per element.
+     */
+    @Override
+    public Iterator<Block> iterator(){
+        return new Iterator<>() {
+            private Node next = first(root);
+            private Node lastReturned;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Block next() {
+                if(modCount != expectedModCount){
+                    throw new ConcurrentModificationException();
+                }
+                if(next == null){
+                    throw new NoSuchElementException();
+                }
+                lastReturned = next;
+                next = successor(next);
+                return lastReturned.block;
+            }
+
+            @Override
+            public void remove() {
+                if(lastReturned == null){
+                    throw new IllegalStateException();
+                }
+                if(modCount != expectedModCount){
+                    throw new ConcurrentModificationException();
+                }
+                BlockSequence.this.remove(lastReturned.block);
+                lastReturned = null;
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    private void requireAbsent(Block block){
+        if(block == null){
+            throw new NullPointerException("Block must not be null");
+        }
+        if(nodes.containsKey(block)){
+            throw new IllegalArgumentException("Block is already in this sequence");
+        }
+    }
+
+    private Node nodeAt(int index){
+        Node node = root;
+        while(true){
+            int leftSize = size(node.left);
+            if(index < leftSize){
+                node = node.left;
+            }
+            else if(index == leftSize){
+                return node;
+            }
+            else{
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private static int size(Node node){
+        return node == null ? 0 : node.size;
+    }
+
+    private static int textLength(Node node){
+        return node == null ? 0 : node.textLength;
+    }
+
+    private static int totalHeight(Node node){
+        return node == null ? 0 : node.totalHeight;
+    }
+
+    private int estimateHeight(Block block){
+        return heightEstimator == null ? 0 : heightEstimator.applyAsInt(block);
+    }
+
+    private static int lengthOf(Block block){
+        String mdText = block.getMdText();
+        return (mdText == null ? 0 : mdText.length()) + SEPARATOR_LENGTH;
+    }
+
+    /**
+     * Take the current length of node's block and fix the sums of length and height on the path to the root.
+     */
+    private static void update(Node node){
+        node.length = lengthOf(node.block);
+        for(Node n = node; n != null; n = n.parent){
+            n.textLength = n.length + textLength(n.left) + textLength(n.right);
+            n.totalHeight = n.height + totalHeight(n.left) + totalHeight(n.right);
+        }
+    }
+
+    /**
+     * Recompute totalHeight of every node in the subtree, children first.
+     */
+    private static void sumHeights(Node node){
+        if(node == null){
+            return;
+        }
+        sumHeights(node.left);
+        sumHeights(node.right);
+        node.totalHeight = node.height + totalHeight(node.left) + totalHeight(node.right);
+    }
+
+    /**
+     * Recompute the subtree size and text length of node and fix the parent links of its children.
+     */
+    private static void pull(Node node){
+        node.size = 1 + size(node.left) + size(node.right);
+        node.textLength = node.length + textLength(node.left) + textLength(node.right);
+        node.totalHeight = node.height + totalHeight(node.left) + totalHeight(node.right);
+        if(node.left != null){
+            node.left.parent = node;
+        }
+        if(node.right != null){
+            node.right.parent = node;
+        }
+    }
+
+    private static Node detach(Node node){
+        if(node != null){
+            node.parent = null;
+        }
+        return node;
+    }
+
+    /**
+     * Split tree into the first count nodes and the rest.
+     * @return {first, rest}, both detached from any parent.
+     */
+    private static Node[] split(Node node, int count){
+        if(node == null){
+            return new Node[]{null, null};
+        }
+        Node[] parts;
+        if(size(node.left) >= count){
+            parts = split(node.left, count);
+            node.left = parts[1];
+            pull(node);
+            parts[1] = node;
+        }
+        else{
+            parts = split(node.right, count - size(node.left) - 1);
+            node.right = parts[0];
+            pull(node);
+            parts[0] = node;
+        }
+        detach(parts[0]);
+        detach(parts[1]);
+        return parts;
+    }
+
+    /**
+     * Concatenate two trees, every node of a comes before every node of b.
+     */
+    private static Node merge(Node a, Node b){
+        if(a == null){
+            return b;
+        }
+        if(b == null){
+            return a;
+        }
+        if(a.priority > b.priority){
+            a.right = merge(a.right, b);
+            pull(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        pull(b);
+        return b;
+    }
+
+    private static Node first(Node node){
+        if(node == null){
+            return null;
+        }
+        while(node.left != null){
+            node = node.left;
+        }
+        return node;
+    }
+
+    private static Node successor(Node node){
+        if(node.right != null){
+            return first(node.right);
+        }
+        while(node.parent != null && node.parent.right == node){
+            node = node.parent;
+        }
+        return node.parent;
+    }
+}
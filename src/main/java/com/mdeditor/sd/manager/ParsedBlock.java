@@ -0,0 +1,30 @@
+package com.mdeditor.sd.manager;
+
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.block.multi.MultiLine;
+import com.mdeditor.sd.block.multi.MultiLineBlock;
+
+/**
+ * Result of parsing one top-level Markdown node, before any Block (Swing component) is created.
+ * @param mdText trimmed Markdown text of the node
+ * @param type MultiLine type of the node, NONE for a SingleLineBlock
+ * @param offset position of mdText in the parsed string, -1 if unknown
+ */
+public record ParsedBlock(String mdText, MultiLine type, int offset) {
+    public ParsedBlock(String mdText, MultiLine type){
+        this(mdText, type, -1);
+    }
+
+    /**
+     * @return true if block was created from the same text and type as this parse result.
+     */
+    public boolean matches(Block block){
+        if(!mdText.equals(block.getMdText())){
+            return false;
+        }
+        if(block instanceof MultiLineBlock multiLineBlock){
+            return multiLineBlock.getType() == type;
+        }
+        return type == MultiLine.NONE;
+    }
+}
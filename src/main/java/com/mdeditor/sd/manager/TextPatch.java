@@ -0,0 +1,84 @@
+package com.mdeditor.sd.manager;
+
+import java.util.List;
+
+/**
+ * Smallest single replacement turning one text into another: text[start, end) becomes replacement.
+ * @param start first changed offset in the old text
+ * @param end end of the changed range in the old text, exclusive
+ * @param replacement new text of the range
+ */
+public record TextPatch(int start, int end, String replacement) {
+    private static final String BLOCK_SEPARATOR = "\n\n";
+
+    /**
+     * Patch between two documents in the format of BlockManager.extractFullMd().
+     * Blocks equal at both ends are skipped without being joined, so the cost follows the changed blocks.
+     * @param oldTexts block texts of the old document, e.g. from BlockManager.snapshotTexts()
+     * @param newTexts block texts of the new document
+     * @return patch turning the old document into the new one, or null if both are equal.
+     */
+    public static TextPatch between(List<String> oldTexts, List<String> newTexts){
+        int oldSize = oldTexts.size();
+        int newSize = newTexts.size();
+        int common = Math.min(oldSize, newSize);
+
+        int prefix = 0;
+        int offset = 0;
+        while(prefix < common && oldTexts.get(prefix).equals(newTexts.get(prefix))){
+            offset += oldTexts.get(prefix).length() + BLOCK_SEPARATOR.length();
+            prefix++;
+        }
+        int suffix = 0;
+        while(suffix < common - prefix
+                && oldTexts.get(oldSize - 1 - suffix).equals(newTexts.get(newSize - 1 - suffix))){
+            suffix++;
+        }
+
+        String oldMiddle = join(oldTexts.subList(prefix, oldSize - suffix));
+        String newMiddle = join(newTexts.subList(prefix, newSize - suffix));
+        TextPatch patch = between(oldMiddle, newMiddle);
+        if(patch == null){
+            return null;
+        }
+        return new TextPatch(offset + patch.start, offset + patch.end, patch.replacement);
+    }
+
+    /**
+     * @return patch turning oldText into newText, or null if both are equal.
+     */
+    public static TextPatch between(CharSequence oldText, CharSequence newText){
+        int oldLength = oldText.length();
+        int newLength = newText.length();
+        int common = Math.min(oldLength, newLength);
+
+        int prefix = 0;
+        while(prefix < common && oldText.charAt(prefix) == newText.charAt(prefix)){
+            prefix++;
+        }
+        if(prefix == oldLength && oldLength == newLength){
+            return null;
+        }
+        int suffix = 0;
+        while(suffix < common - prefix
+                && oldText.charAt(oldLength - 1 - suffix) == newText.charAt(newLength - 1 - suffix)){
+            suffix++;
+        }
+        return new TextPatch(prefix, oldLength - suffix, newText.subSequence(prefix, newLength - suffix).toString());
+    }
+
+    /**
+     * @return text with this patch applied.
+     */
+    public String applyTo(String text){
+        return text.substring(0, start) + replacement + text.substring(end);
+    }
+
+    private static String join(List<String> texts){
+        StringBuilder sb = new StringBuilder();
+        for(String text : texts){
+            sb.append(text).append(BLOCK_SEPARATOR);
+        }
+        return sb.toString();
+    }
+}
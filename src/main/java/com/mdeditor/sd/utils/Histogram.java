@@ -0,0 +1,99 @@
+package com.mdeditor.sd.utils;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values, e.g. durations in nanoseconds or numbers of blocks.
+ * Values are counted in power-of-two buckets: bucket 0 holds 0 and bucket i holds [2^(i-1), 2^i).
+ * Recording is a few LongAdder updates, cheap enough for every keystroke and safe from any thread.
+ * Percentiles are approximate, the upper bound of the bucket the rank falls into, capped at max.
+ */
+public final class Histogram {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets;
+    private final LongAdder count;
+    private final LongAdder total;
+    private final LongAccumulator max;
+    private volatile long last;
+
+    /**
+     * Counts, sum and approximate percentiles of a histogram at one point in time.
+     * @param last most recently recorded value, e.g. the current value of a gauge
+     */
+    public record Summary(long count, long total, long max, long last, long p50, long p95, long p99) {
+        public long mean(){
+            return count == 0 ? 0 : total / count;
+        }
+    }
+
+    public Histogram(){
+        buckets = new LongAdder[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++){
+            buckets[i] = new LongAdder();
+        }
+        count = new LongAdder();
+        total = new LongAdder();
+        max = new LongAccumulator(Long::max, 0);
+    }
+
+    /**
+     * @param value negative values are counted as 0
+     */
+    public void record(long value){
+        value = Math.max(0, value);
+        buckets[BUCKETS - Long.numberOfLeadingZeros(value)].increment();
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+        last = value;
+    }
+
+    public long getCount(){
+        return count.sum();
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.95
+     * @return upper bound of the values below which quantile of all values fall, 0 if nothing was recorded.
+     */
+    public long percentile(double quantile){
+        long n = count.sum();
+        if(n == 0){
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        long maximum = max.get();
+        for(int i = 0; i < BUCKETS; i++){
+            seen += buckets[i].sum();
+            if(seen >= rank){
+                return Math.min(upperBound(i), maximum);
+            }
+        }
+        return maximum;
+    }
+
+    public Summary summary(){
+        return new Summary(count.sum(), total.sum(), max.get(), last,
+                percentile(0.5), percentile(0.95), percentile(0.99));
+    }
+
+    /**
+     * Forget every recorded value. Values recorded concurrently may survive partly.
+     */
+    public void reset(){
+        for(LongAdder bucket : buckets){
+            bucket.reset();
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+        last = 0;
+    }
+
+    private static long upperBound(int bucket){
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,116 @@
+package com.mdeditor.sd.utils;
+
+import java.util.Objects;
+
+/**
+ * Start offsets of the lines of a text, built in one pass.
+ * Lines are exactly those of text.split("\n"): trailing empty lines are dropped,
+ * and a text without any line break is one line, even if empty.
+ * Line count is O(1), offset to line is O(log n), and indent queries do not allocate.
+ */
+public final class LineIndex {
+    private final String text;
+    private final int[] starts; // start of every line, including dropped trailing empty lines
+    private final int lineCount;
+
+    public LineIndex(String text){
+        this.text = text;
+        int count = 1;
+        for(int i = 0; i < text.length(); i++){
+            if(text.charAt(i) == '\n'){
+                count++;
+            }
+        }
+        starts = new int[count];
+        int line = 1;
+        for(int i = 0; i < text.length(); i++){
+            if(text.charAt(i) == '\n'){
+                starts[line++] = i + 1;
+            }
+        }
+
+        int n = count;
+        if(count > 1){
+            while(n > 0 && rawLineEnd(n - 1) == starts[n - 1]){
+                n--;
+            }
+        }
+        lineCount = n;
+    }
+
+    /**
+     * @return text this index was built from.
+     */
+    public String getText(){
+        return text;
+    }
+
+    /**
+     * @return number of lines, same as text.split("\n").length.
+     */
+    public int lineCount(){
+        return lineCount;
+    }
+
+    /**
+     * @return offset of the first character of line.
+     */
+    public int lineStart(int line){
+        Objects.checkIndex(line, lineCount);
+        return starts[line];
+    }
+
+    /**
+     * @return offset of the line break ending line, or the text length for the last line.
+     */
+    public int lineEnd(int line){
+        Objects.checkIndex(line, lineCount);
+        return rawLineEnd(line);
+    }
+
+    /**
+     * @return text of line, same as text.split("\n")[line].
+     */
+    public String line(int line){
+        return text.substring(lineStart(line), lineEnd(line));
+    }
+
+    /**
+     * @return number of spaces at the start of line.
+     */
+    public int indentAt(int line){
+        int start = lineStart(line);
+        int end = lineEnd(line);
+        int i = start;
+        while(i < end && text.charAt(i) == ' '){
+            i++;
+        }
+        return i - start;
+    }
+
+    /**
+     * Line of a caret offset, where the line break belongs to the line it ends.
+     * @return first line whose end is at or after offset, the last line if offset is past the text,
+     * -1 if there are no lines.
+     */
+    public int lineAt(int offset){
+        int low = 0;
+        int high = lineCount - 1;
+        int found = lineCount - 1;
+        while(low <= high){
+            int mid = (low + high) >>> 1;
+            if(rawLineEnd(mid) >= offset){
+                found = mid;
+                high = mid - 1;
+            }
+            else{
+                low = mid + 1;
+            }
+        }
+        return found;
+    }
+
+    private int rawLineEnd(int line){
+        return line + 1 < starts.length ? starts[line + 1] - 1 : text.length();
+    }
+}
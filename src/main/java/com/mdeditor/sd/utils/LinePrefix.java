@@ -0,0 +1,147 @@
+package com.mdeditor.sd.utils;
+
+import com.mdeditor.sd.block.Block;
+
+/**
+ * List, quote or table marker at the start of a line, found by scanning characters in place.
+ * The marker is the token after the indent, up to the next space;
+ * it is one of {@code > - + * |}, or a number accepted by Integer.parseInt followed by '.'.
+ * @param kind what the marker is, NONE if the token is no marker
+ * @param marker the marker character for QUOTE, BULLET and TABLE, '.' for numbers, 0 for NONE
+ * @param number value of the number for ORDERED and NUMBER, 0 otherwise
+ * @param indent number of spaces before the marker
+ * @param length length of the marker, 0 for NONE
+ * @param source text the marker was scanned from
+ * @param start offset of the marker in source
+ */
+public record LinePrefix(Kind kind, char marker, int number, int indent, int length, String source, int start) {
+    public enum Kind {
+        NONE,
+        QUOTE,   // >
+        BULLET,  // - + *
+        TABLE,   // |
+        ORDERED, // ASCII digits and '.', e.g. "12."
+        NUMBER   // other numbers Integer.parseInt accepts and '.', e.g. "+1." or non-ASCII digits
+    }
+
+    /**
+     * Prefix of a line of mdText, as Utils.getPrefix(block, line) used to compute it.
+     * @throws IndexOutOfBoundsException if block has no such line
+     */
+    public static LinePrefix of(Block block, int line){
+        LineIndex lines = block.getLineIndex();
+        return at(lines.getText(), lines.lineStart(line), lines.lineEnd(line));
+    }
+
+    /**
+     * Prefix of the line text[lineStart, lineEnd), which must not contain a line break.
+     */
+    public static LinePrefix at(String text, int lineStart, int lineEnd){
+        int start = lineStart;
+        while(start < lineEnd && text.charAt(start) == ' '){
+            start++;
+        }
+        int end = start;
+        while(end < lineEnd && text.charAt(end) != ' '){
+            end++;
+        }
+        return scan(text, start - lineStart, start, end);
+    }
+
+    /**
+     * Classify text[start, end) as a marker.
+     * @param indent number of spaces before start, only recorded in the result
+     */
+    public static LinePrefix scan(String text, int indent, int start, int end){
+        int length = end - start;
+        if(length == 1){
+            char c = text.charAt(start);
+            return switch (c) {
+                case '>' -> new LinePrefix(Kind.QUOTE, c, 0, indent, 1, text, start);
+                case '-', '+', '*' -> new LinePrefix(Kind.BULLET, c, 0, indent, 1, text, start);
+                case '|' -> new LinePrefix(Kind.TABLE, c, 0, indent, 1, text, start);
+                default -> none(text, indent, start);
+            };
+        }
+        if(length < 2 || text.charAt(end - 1) != '.'){
+            return none(text, indent, start);
+        }
+
+        // same rules as Integer.parseInt(text.substring(start, end - 1))
+        int i = start;
+        boolean negative = false;
+        boolean signed = false;
+        char first = text.charAt(i);
+        if(first == '-' || first == '+'){
+            negative = first == '-';
+            signed = true;
+            i++;
+        }
+        if(i == end - 1){
+            return none(text, indent, start);
+        }
+        boolean ascii = true;
+        long value = 0;
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for(; i < end - 1; i++){
+            char c = text.charAt(i);
+            int digit = Character.digit(c, 10);
+            if(digit < 0){
+                return none(text, indent, start);
+            }
+            ascii &= c >= '0' && c <= '9';
+            value = value * 10 + digit;
+            if(value > limit){
+                return none(text, indent, start);
+            }
+        }
+        Kind kind = ascii && !signed ? Kind.ORDERED : Kind.NUMBER;
+        return new LinePrefix(kind, '.', (int) (negative ? -value : value), indent, length, text, start);
+    }
+
+    private static LinePrefix none(String text, int indent, int start){
+        return new LinePrefix(Kind.NONE, (char) 0, 0, indent, 0, text, start);
+    }
+
+    /**
+     * @return true for a list, quote or table marker.
+     */
+    public boolean isMarker(){
+        return kind != Kind.NONE;
+    }
+
+    /**
+     * @return true for an ordered list marker, as Utils.isOL(text()).
+     */
+    public boolean isOrdered(){
+        return kind == Kind.ORDERED;
+    }
+
+    /**
+     * Same as matching the line against "^[ ]*" + Pattern.quote(text()) + "?[ ]*$",
+     * the check MultiLineBlock used for an empty list item.
+     * @return true if only spaces follow the marker up to the end of its line.
+     */
+    public boolean isEmptyItem(){
+        for(int i = start + length; i < source.length() && source.charAt(i) != '\n'; i++){
+            if(source.charAt(i) != ' '){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if text() equals other.text(), compared in place.
+     */
+    public boolean sameAs(LinePrefix other){
+        return length == other.length && source.regionMatches(start, other.source, other.start, length);
+    }
+
+    /**
+     * @return the marker as Utils.getPrefix() returns it, "" for NONE.
+     */
+    public String text(){
+        return source.substring(start, start + length);
+    }
+}
@@ -0,0 +1,79 @@
+package com.mdeditor.sd.utils;
+
+import com.mdeditor.sd.editor.EditorSettings;
+
+/**
+ * Entry point for instrumentation of rendering, parsing and block events.
+ * Measurements go to the current MetricsSink, by default a MetricsRegistry kept in memory.
+ * A disabled measurement costs one volatile read; see EditorSettings.isMetricsEnabled().
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * Metrics.stop(Metrics.PARSE, start);
+ * </pre>
+ */
+public final class Metrics {
+    public static final String RENDER_HTML = "render.html"; // Utils.stringToHtmlWithCss()
+    public static final String RENDER_FRAGMENT = "render.fragment"; // body fragment in shared stylesheet mode
+    public static final String RENDER_PAINTED = "render.painted"; // PaintedBlock built from mdText
+    public static final String SHOW_HTML = "block.showHTML"; // HTML set into a block's document
+    public static final String SHOW_PAINTED = "block.showPainted"; // PaintedBlock set into a block's document
+    public static final String RENDER_MD = "block.renderMD"; // block switched to its Markdown text, counted
+    public static final String PARSE = "document.parse"; // BlockManager.parseString()
+    public static final String DOCUMENT_BLOCKS = "document.blocks"; // blocks of a parsed document
+    public static final String EVENT_PREFIX = "event."; // BlockManager.update() per BlockEvent
+
+    private static final long NOT_MEASURED = Long.MIN_VALUE;
+    private static final MetricsRegistry registry = new MetricsRegistry();
+    private static volatile MetricsSink sink = registry;
+
+    private Metrics(){
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @return start time to pass to stop(), or a marker that makes stop() do nothing if metrics are disabled.
+     */
+    public static long start(){
+        return EditorSettings.isMetricsEnabled() ? System.nanoTime() : NOT_MEASURED;
+    }
+
+    /**
+     * Record the time since start under name.
+     * @param start result of start()
+     */
+    public static void stop(String name, long start){
+        if(start != NOT_MEASURED){
+            sink.record(name, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Record a value that is not a duration, e.g. a number of blocks.
+     */
+    public static void record(String name, long value){
+        if(EditorSettings.isMetricsEnabled()){
+            sink.record(name, value);
+        }
+    }
+
+    public static void count(String name){
+        if(EditorSettings.isMetricsEnabled()){
+            sink.count(name);
+        }
+    }
+
+    /**
+     * @param newSink receives every following measurement, null for the default registry.
+     */
+    public static void setSink(MetricsSink newSink){
+        sink = newSink == null ? registry : newSink;
+    }
+
+    /**
+     * @return the default sink, which holds the measurements as long as no other sink is set.
+     */
+    public static MetricsRegistry getRegistry(){
+        return registry;
+    }
+}
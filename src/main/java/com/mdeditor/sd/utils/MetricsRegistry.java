@@ -0,0 +1,95 @@
+package com.mdeditor.sd.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default MetricsSink, keeping a Histogram per recorded metric and a counter per counted one in memory.
+ * The collected values can be read one by one or dumped as JSON.
+ */
+public class MetricsRegistry implements MetricsSink {
+    private final Map<String, Histogram> histograms;
+    private final Map<String, LongAdder> counters;
+
+    public MetricsRegistry(){
+        this.histograms = new ConcurrentHashMap<>();
+        this.counters = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void record(String name, long value) {
+        Histogram histogram = histograms.get(name);
+        if(histogram == null){
+            histogram = histograms.computeIfAbsent(name, key -> new Histogram());
+        }
+        histogram.record(value);
+    }
+
+    @Override
+    public void count(String name) {
+        LongAdder counter = counters.get(name);
+        if(counter == null){
+            counter = counters.computeIfAbsent(name, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * @return histogram of the named metric, or null if nothing was recorded for it.
+     */
+    public Histogram getHistogram(String name){
+        return histograms.get(name);
+    }
+
+    /**
+     * @return how often the named event was counted.
+     */
+    public long getCount(String name){
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Forget every recorded and counted value.
+     */
+    public void reset(){
+        histograms.clear();
+        counters.clear();
+    }
+
+    /**
+     * @return every counter and histogram summary as one JSON object, sorted by name.
+     * Durations are in nanoseconds.
+     */
+    public String toJson(){
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        String separator = "";
+        for(Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()){
+            json.append(separator).append(quote(counter.getKey())).append(':').append(counter.getValue().sum());
+            separator = ",";
+        }
+        json.append("},\"histograms\":{");
+        separator = "";
+        for(Map.Entry<String, Histogram> histogram : new TreeMap<>(histograms).entrySet()){
+            Histogram.Summary summary = histogram.getValue().summary();
+            json.append(separator).append(quote(histogram.getKey()))
+                    .append(":{\"count\":").append(summary.count())
+                    .append(",\"total\":").append(summary.total())
+                    .append(",\"mean\":").append(summary.mean())
+                    .append(",\"p50\":").append(summary.p50())
+                    .append(",\"p95\":").append(summary.p95())
+                    .append(",\"p99\":").append(summary.p99())
+                    .append(",\"max\":").append(summary.max())
+                    .append(",\"last\":").append(summary.last())
+                    .append('}');
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    private static String quote(String name){
+        return "\"" + name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
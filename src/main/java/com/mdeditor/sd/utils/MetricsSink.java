@@ -0,0 +1,19 @@
+package com.mdeditor.sd.utils;
+
+/**
+ * Receives every measurement reported through Metrics, e.g. to aggregate it or pass it on to another system.
+ * Called on whichever thread measured, often the EDT, so implementations must be thread-safe and fast.
+ * @see Metrics#setSink(MetricsSink)
+ */
+public interface MetricsSink {
+    /**
+     * @param name metric name, e.g. Metrics.PARSE
+     * @param value duration in nanoseconds, or the measured value for non-timing metrics
+     */
+    void record(String name, long value);
+
+    /**
+     * One occurrence of the named event.
+     */
+    void count(String name);
+}
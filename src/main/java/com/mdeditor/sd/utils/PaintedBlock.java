@@ -0,0 +1,424 @@
+package com.mdeditor.sd.utils;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineBreakMeasurer;
+import java.awt.font.LineMetrics;
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+import java.text.AttributedCharacterIterator;
+import java.text.AttributedString;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Markdown text of a block laid out for painting with Graphics2D, the lightweight alternative to an HTMLDocument.
+ * Built once from the flexmark AST of mdText by PaintedBlockBuilder, which is safe from any thread.
+ * Layout and painting run on the EDT; the TextLayouts of a width are kept until the block is laid out at another width,
+ * and a line that fits the width reuses the TextLayout measured for the preferred width.
+ * Colors and sizes follow editor/github-markdown-light.css, so both rendering engines look alike.
+ * @see PaintedBlockEditorKit
+ */
+public class PaintedBlock {
+    static final String BODY_FAMILY = Font.SANS_SERIF;
+    static final String CODE_FAMILY = Font.MONOSPACED;
+    static final float BODY_SIZE = 15f;
+    static final Color TEXT_COLOR = new Color(0x1f2328);
+    static final Color QUOTE_COLOR = new Color(0x656d76);
+    static final Color LINK_COLOR = new Color(0x0969da);
+    static final Color CODE_BACKGROUND = new Color(0xf6f8fa);
+    static final Color BORDER_COLOR = new Color(0xd0d7de);
+    private static final float MARKER_GAP = 6f; // between a list marker and its text
+    private static final float QUOTE_BAR_WIDTH = 3f;
+    private static final float RULE_HEIGHT = 4f;
+    private static final float HEADING_RULE_GAP = 5f; // between a h1 or h2 and the line below it
+
+    private final String mdText;
+    private final List<Item> items;
+    private float layoutWidth = -1;
+    private FontRenderContext layoutFrc;
+    private float height;
+    private FontRenderContext preferredWidthFrc;
+    private float preferredWidth;
+
+    PaintedBlock(String mdText, List<Item> items){
+        this.mdText = mdText;
+        this.items = items;
+    }
+
+    /**
+     * Parse mdText and build the block to paint from its AST. Safe to call from any thread.
+     */
+    public static PaintedBlock of(String mdText){
+        long start = Metrics.start();
+        PaintedBlock painted = new PaintedBlockBuilder().build(mdText);
+        Metrics.stop(Metrics.RENDER_PAINTED, start);
+        return painted;
+    }
+
+    /**
+     * @return Markdown text this block was built from.
+     */
+    public String getMdText(){
+        return mdText;
+    }
+
+    /**
+     * @return number of painted paragraphs, headings, code blocks, rules and tables.
+     */
+    public int getItemCount(){
+        return items.size();
+    }
+
+    /**
+     * @return height of this block laid out at width.
+     */
+    public float getHeight(float width, FontRenderContext frc){
+        layout(width, frc);
+        return height;
+    }
+
+    /**
+     * @return width this block needs to show every line without wrapping.
+     */
+    public float getPreferredWidth(FontRenderContext frc){
+        if(!frc.equals(preferredWidthFrc)){
+            float width = 0;
+            for(Item item : items){
+                width = Math.max(width, item.preferredWidth(frc));
+            }
+            preferredWidth = width;
+            preferredWidthFrc = frc;
+        }
+        return preferredWidth;
+    }
+
+    /**
+     * Paint this block laid out at width, with its top left corner at (x, y).
+     * @param frc context the block was measured with, so the painted height matches the measured one.
+     */
+    public void paint(Graphics2D g, float x, float y, float width, FontRenderContext frc){
+        layout(width, frc);
+        Item previous = null;
+        for(Item item : items){
+            float top = y + item.spaceBefore;
+            g.setColor(BORDER_COLOR);
+            for(float bar : item.bars){
+                float from = previous != null && previous.hasBar(bar) ? y : top;
+                g.fill(new Rectangle2D.Float(x + bar, from, QUOTE_BAR_WIDTH, top + item.height - from));
+            }
+            item.paint(g, x, top);
+            y = top + item.height;
+            previous = item;
+        }
+    }
+
+    private void layout(float width, FontRenderContext frc){
+        if(width == layoutWidth && frc.equals(layoutFrc)){
+            return;
+        }
+        float total = 0;
+        for(Item item : items){
+            total += item.spaceBefore + item.layout(width, frc);
+        }
+        height = total;
+        layoutWidth = width;
+        layoutFrc = frc;
+    }
+
+    /**
+     * Paragraph, heading, code block, rule or table painted as one piece.
+     */
+    abstract static class Item {
+        final float indent; // left edge relative to the block
+        final float spaceBefore;
+        final float[] bars; // x of the quote bars left of this item, relative to the block
+        float height; // of the last layout
+
+        Item(float indent, float spaceBefore, float[] bars){
+            this.indent = indent;
+            this.spaceBefore = spaceBefore;
+            this.bars = bars;
+        }
+
+        /**
+         * Lay out this item for a block of width and return its height.
+         */
+        abstract float layout(float width, FontRenderContext frc);
+
+        abstract float preferredWidth(FontRenderContext frc);
+
+        /**
+         * Paint the last layout with the top left corner of the block at (x, y).
+         */
+        abstract void paint(Graphics2D g, float x, float y);
+
+        boolean hasBar(float bar){
+            for(float b : bars){
+                if(b == bar){
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Wrapped lines of styled text, optionally with a list marker, padding, background and a line below.
+     */
+    static class TextItem extends Item {
+        private final List<AttributedString> lines; // split at hard line breaks
+        private final Font font; // for empty lines and the marker
+        private final String marker; // list marker drawn left of the text, or null
+        private final Boolean checked; // task list checkbox drawn instead of marker, or null
+        private final float padX;
+        private final float padY;
+        private final Color background; // filled behind the padded text, or null
+        private final boolean ruleBelow;
+
+        private float layoutWidth = -1;
+        private FontRenderContext layoutFrc;
+        private final List<TextLayout> layouts; // null for an empty line
+        private TextLayout[] unwrapped; // one per line of lines, null for an empty line
+        private FontRenderContext unwrappedFrc;
+        private TextLayout markerLayout;
+        private float blankAscent;
+        private float blankDescent;
+        private float width; // of the padded text box
+
+        TextItem(List<AttributedString> lines, Font font, String marker, Boolean checked,
+                 float indent, float spaceBefore, float[] bars, float padX, float padY, Color background, boolean ruleBelow){
+            super(indent, spaceBefore, bars);
+            this.lines = lines;
+            this.font = font;
+            this.marker = marker;
+            this.checked = checked;
+            this.padX = padX;
+            this.padY = padY;
+            this.background = background;
+            this.ruleBelow = ruleBelow;
+            this.layouts = new ArrayList<>();
+        }
+
+        @Override
+        float layout(float blockWidth, FontRenderContext frc){
+            if(blockWidth == layoutWidth && frc.equals(layoutFrc)){
+                return height;
+            }
+            measure(frc);
+            width = Math.max(1, blockWidth - indent);
+            float wrapWidth = Math.max(1, width - 2 * padX);
+            layouts.clear();
+            float total = 2 * padY;
+            for(int i = 0; i < lines.size(); i++){
+                TextLayout line = unwrapped[i];
+                if(line == null){
+                    layouts.add(null);
+                    total += blankAscent + blankDescent;
+                }
+                else if(line.getAdvance() <= wrapWidth){
+                    layouts.add(line);
+                    total += lineHeight(line);
+                }
+                else{
+                    AttributedCharacterIterator text = lines.get(i).getIterator();
+                    LineBreakMeasurer measurer = new LineBreakMeasurer(text, frc);
+                    while(measurer.getPosition() < text.getEndIndex()){
+                        TextLayout wrapped = measurer.nextLayout(wrapWidth);
+                        layouts.add(wrapped);
+                        total += lineHeight(wrapped);
+                    }
+                }
+            }
+            if(ruleBelow){
+                total += HEADING_RULE_GAP + 1;
+            }
+            height = total;
+            layoutWidth = blockWidth;
+            layoutFrc = frc;
+            return height;
+        }
+
+        @Override
+        float preferredWidth(FontRenderContext frc){
+            measure(frc);
+            float widest = 0;
+            for(TextLayout line : unwrapped){
+                if(line != null){
+                    widest = Math.max(widest, line.getAdvance());
+                }
+            }
+            return indent + 2 * padX + widest;
+        }
+
+        /**
+         * Lay out every line without wrapping, once per context.
+         */
+        private void measure(FontRenderContext frc){
+            if(frc.equals(unwrappedFrc)){
+                return;
+            }
+            unwrapped = new TextLayout[lines.size()];
+            for(int i = 0; i < unwrapped.length; i++){
+                AttributedCharacterIterator text = lines.get(i).getIterator();
+                if(text.getEndIndex() > text.getBeginIndex()){
+                    unwrapped[i] = new TextLayout(text, frc);
+                }
+            }
+            LineMetrics metrics = font.getLineMetrics(" ", frc);
+            blankAscent = metrics.getAscent();
+            blankDescent = metrics.getDescent() + metrics.getLeading();
+            markerLayout = marker == null || marker.isEmpty() ? null : new TextLayout(marker, font, frc);
+            unwrappedFrc = frc;
+        }
+
+        private static float lineHeight(TextLayout line){
+            return line.getAscent() + line.getDescent() + line.getLeading();
+        }
+
+        @Override
+        void paint(Graphics2D g, float x, float y){
+            float left = x + indent;
+            if(background != null){
+                g.setColor(background);
+                g.fill(new Rectangle2D.Float(left, y, width, height - (ruleBelow ? HEADING_RULE_GAP + 1 : 0)));
+            }
+
+            float baseline = y + padY;
+            boolean first = true;
+            for(TextLayout line : layouts){
+                float ascent = line == null ? blankAscent : line.getAscent();
+                baseline += ascent;
+                if(first){
+                    paintMarker(g, left, baseline, ascent);
+                    first = false;
+                }
+                if(line != null){
+                    g.setColor(TEXT_COLOR);
+                    line.draw(g, left + padX, baseline);
+                    baseline += line.getDescent() + line.getLeading();
+                }
+                else{
+                    baseline += blankDescent;
+                }
+            }
+
+            if(ruleBelow){
+                g.setColor(BORDER_COLOR);
+                g.fill(new Rectangle2D.Float(left, y + height - 1, width, 1));
+            }
+        }
+
+        private void paintMarker(Graphics2D g, float left, float baseline, float ascent){
+            g.setColor(TEXT_COLOR);
+            if(checked != null){
+                float size = Math.max(6, blankAscent * 0.8f);
+                float boxX = left - MARKER_GAP - size;
+                float boxY = baseline - size;
+                g.draw(new Rectangle2D.Float(boxX, boxY, size, size));
+                if(checked){
+                    g.fill(new Rectangle2D.Float(boxX + 3, boxY + 3, size - 5, size - 5));
+                }
+            }
+            else if(markerLayout != null){
+                markerLayout.draw(g, left - MARKER_GAP - markerLayout.getAdvance(), baseline);
+            }
+        }
+    }
+
+    /**
+     * Thematic break.
+     */
+    static class RuleItem extends Item {
+        private float width;
+
+        RuleItem(float indent, float spaceBefore, float[] bars){
+            super(indent, spaceBefore, bars);
+        }
+
+        @Override
+        float layout(float blockWidth, FontRenderContext frc){
+            width = Math.max(1, blockWidth - indent);
+            height = RULE_HEIGHT;
+            return height;
+        }
+
+        @Override
+        float preferredWidth(FontRenderContext frc){
+            return indent;
+        }
+
+        @Override
+        void paint(Graphics2D g, float x, float y){
+            g.setColor(BORDER_COLOR);
+            g.fill(new Rectangle2D.Float(x + indent, y, width, height));
+        }
+    }
+
+    /**
+     * Table of equally wide columns with a border around every cell.
+     */
+    static class TableItem extends Item {
+        private final List<List<TextItem>> rows; // header rows first
+        private final int columns;
+        private final float[] rowHeights;
+        private float columnWidth;
+
+        TableItem(List<List<TextItem>> rows, float indent, float spaceBefore, float[] bars){
+            super(indent, spaceBefore, bars);
+            this.rows = rows;
+            int max = 1;
+            for(List<TextItem> row : rows){
+                max = Math.max(max, row.size());
+            }
+            this.columns = max;
+            this.rowHeights = new float[rows.size()];
+        }
+
+        @Override
+        float layout(float blockWidth, FontRenderContext frc){
+            columnWidth = Math.max(1, (blockWidth - indent - 1) / columns);
+            float total = 1;
+            for(int r = 0; r < rows.size(); r++){
+                float rowHeight = 0;
+                for(TextItem cell : rows.get(r)){
+                    rowHeight = Math.max(rowHeight, cell.layout(columnWidth, frc));
+                }
+                rowHeights[r] = rowHeight;
+                total += rowHeight;
+            }
+            height = total;
+            return height;
+        }
+
+        @Override
+        float preferredWidth(FontRenderContext frc){
+            float widest = 0;
+            for(List<TextItem> row : rows){
+                for(TextItem cell : row){
+                    widest = Math.max(widest, cell.preferredWidth(frc));
+                }
+            }
+            return indent + columns * widest + 1;
+        }
+
+        @Override
+        void paint(Graphics2D g, float x, float y){
+            float left = x + indent;
+            float top = y;
+            for(int r = 0; r < rows.size(); r++){
+                List<TextItem> row = rows.get(r);
+                for(int c = 0; c < row.size(); c++){
+                    row.get(c).paint(g, left + c * columnWidth, top);
+                }
+                g.setColor(BORDER_COLOR);
+                g.fill(new Rectangle2D.Float(left, top, columns * columnWidth + 1, 1));
+                top += rowHeights[r];
+            }
+            g.fill(new Rectangle2D.Float(left, top, columns * columnWidth + 1, 1));
+            for(int c = 0; c <= columns; c++){
+                g.fill(new Rectangle2D.Float(left + c * columnWidth, y, 1, top - y + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.mdeditor.sd.utils;
+
+import com.vladsch.flexmark.ast.BlockQuote;
+import com.vladsch.flexmark.ast.BulletList;
+import com.vladsch.flexmark.ast.Code;
+import com.vladsch.flexmark.ast.Emphasis;
+import com.vladsch.flexmark.ast.FencedCodeBlock;
+import com.vladsch.flexmark.ast.HardLineBreak;
+import com.vladsch.flexmark.ast.Heading;
+import com.vladsch.flexmark.ast.Image;
+import com.vladsch.flexmark.ast.IndentedCodeBlock;
+import com.vladsch.flexmark.ast.Link;
+import com.vladsch.flexmark.ast.ListItem;
+import com.vladsch.flexmark.ast.OrderedList;
+import com.vladsch.flexmark.ast.Paragraph;
+import com.vladsch.flexmark.ast.SoftLineBreak;
+import com.vladsch.flexmark.ast.StrongEmphasis;
+import com.vladsch.flexmark.ast.Text;
+import com.vladsch.flexmark.ast.ThematicBreak;
+import com.vladsch.flexmark.ext.gfm.strikethrough.Strikethrough;
+import com.vladsch.flexmark.ext.gfm.tasklist.TaskListItem;
+import com.vladsch.flexmark.ext.tables.TableBlock;
+import com.vladsch.flexmark.ext.tables.TableBody;
+import com.vladsch.flexmark.ext.tables.TableCell;
+import com.vladsch.flexmark.ext.tables.TableHead;
+import com.vladsch.flexmark.ext.tables.TableRow;
+import com.vladsch.flexmark.util.ast.ContentNode;
+import com.vladsch.flexmark.util.ast.Node;
+
+import java.awt.*;
+import java.awt.font.TextAttribute;
+import java.text.AttributedCharacterIterator.Attribute;
+import java.text.AttributedString;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Walks the flexmark AST of a block's Markdown text and turns it into the items of a PaintedBlock.
+ * Block nodes become paragraphs, headings, code blocks, rules and tables; inline nodes become styled runs.
+ * Nodes without a style of their own show their text.
+ */
+final class PaintedBlockBuilder {
+    private static final float[] HEADING_SCALE = {2f, 1.5f, 1.25f, 1f, 0.875f, 0.85f};
+    private static final float PARAGRAPH_SPACING = 8f;
+    private static final float LIST_ITEM_SPACING = 4f;
+    private static final float HEADING_SPACING = 12f;
+    private static final float LIST_INDENT = 24f;
+    private static final float QUOTE_INDENT = 16f;
+    private static final float CODE_PADDING = 10f;
+    private static final float CELL_PADDING_X = 8f;
+    private static final float CELL_PADDING_Y = 4f;
+    private static final float[] NO_BARS = {};
+
+    private final List<PaintedBlock.Item> items;
+    private float[] bars; // quote bars of the quotes the builder is inside
+    private String marker; // list marker of the next text item, or null
+    private Boolean checked; // task list state of the next text item, or null
+    private float spacing; // space before the next item, unless it is the first one
+
+    PaintedBlockBuilder(){
+        this.items = new ArrayList<>();
+        this.bars = NO_BARS;
+        this.spacing = PARAGRAPH_SPACING;
+    }
+
+    PaintedBlock build(String mdText){
+        Node document = Utils.flexmarkParse(mdText);
+        for(Node child = document.getFirstChild(); child != null; child = child.getNext()){
+            addBlock(child, 0);
+        }
+        if(items.isEmpty()){
+            addText(new Inline(), bodyStyle(), 0, 0, 0, null, false);
+        }
+        return new PaintedBlock(mdText, items);
+    }
+
+    private void addBlock(Node node, float indent){
+        if(node instanceof Heading heading){
+            int level = Math.min(Math.max(heading.getLevel(), 1), HEADING_SCALE.length);
+            Map<Attribute, Object> style = bodyStyle();
+            style.put(TextAttribute.SIZE, PaintedBlock.BODY_SIZE * HEADING_SCALE[level - 1]);
+            style.put(TextAttribute.WEIGHT, TextAttribute.WEIGHT_BOLD);
+            spacing = HEADING_SPACING;
+            addText(inlines(node), style, indent, 0, 0, null, level <= 2);
+        }
+        else if(node instanceof Paragraph){
+            addText(inlines(node), bodyStyle(), indent, 0, 0, null, false);
+        }
+        else if(node instanceof BlockQuote){
+            float[] outer = bars;
+            bars = Arrays.copyOf(outer, outer.length + 1);
+            bars[outer.length] = indent;
+            addChildren(node, indent + QUOTE_INDENT);
+            bars = outer;
+        }
+        else if(node instanceof BulletList || node instanceof OrderedList){
+            addList(node, indent);
+        }
+        else if(node instanceof FencedCodeBlock || node instanceof IndentedCodeBlock){
+            String code = ((ContentNode) node).getContentChars().toString().stripTrailing();
+            Map<Attribute, Object> style = bodyStyle();
+            style.put(TextAttribute.FAMILY, PaintedBlock.CODE_FAMILY);
+            style.put(TextAttribute.SIZE, PaintedBlock.BODY_SIZE * 0.85f);
+            addText(new Inline().append(code), style, indent, CODE_PADDING, CODE_PADDING, PaintedBlock.CODE_BACKGROUND, false);
+        }
+        else if(node instanceof ThematicBreak){
+            items.add(new PaintedBlock.RuleItem(indent, nextSpacing(), bars));
+        }
+        else if(node instanceof TableBlock){
+            addTable(node, indent);
+        }
+        else{
+            addText(new Inline().append(node.getChars().toString().strip()), bodyStyle(), indent, 0, 0, null, false);
+        }
+    }
+
+    private void addChildren(Node node, float indent){
+        for(Node child = node.getFirstChild(); child != null; child = child.getNext()){
+            addBlock(child, indent);
+        }
+    }
+
+    private void addList(Node list, float indent){
+        int number = list instanceof OrderedList ordered ? ordered.getStartNumber() : 0;
+        for(Node item = list.getFirstChild(); item != null; item = item.getNext()){
+            if(!(item instanceof ListItem)){
+                addBlock(item, indent);
+                continue;
+            }
+            flushMarker(indent + LIST_INDENT);
+            marker = list instanceof OrderedList ? (number++) + "." : "\u2022";
+            checked = item instanceof TaskListItem task ? task.isItemDoneMarker() : null;
+            spacing = LIST_ITEM_SPACING;
+            addChildren(item, indent + LIST_INDENT);
+            flushMarker(indent + LIST_INDENT);
+        }
+        spacing = PARAGRAPH_SPACING;
+    }
+
+    /**
+     * Give a list marker that no text took, e.g. of an empty item, an empty line of its own.
+     */
+    private void flushMarker(float indent){
+        if(marker != null){
+            addText(new Inline(), bodyStyle(), indent, 0, 0, null, false);
+        }
+    }
+
+    private void addTable(Node table, float indent){
+        List<List<PaintedBlock.TextItem>> rows = new ArrayList<>();
+        for(Node section = table.getFirstChild(); section != null; section = section.getNext()){
+            if(!(section instanceof TableHead) && !(section instanceof TableBody)){
+                continue;
+            }
+            for(Node row = section.getFirstChild(); row != null; row = row.getNext()){
+                if(row instanceof TableRow){
+                    rows.add(tableRow(row, section instanceof TableHead));
+                }
+            }
+        }
+        items.add(new PaintedBlock.TableItem(rows, indent, nextSpacing(), bars));
+    }
+
+    private List<PaintedBlock.TextItem> tableRow(Node row, boolean header){
+        List<PaintedBlock.TextItem> cells = new ArrayList<>();
+        for(Node cell = row.getFirstChild(); cell != null; cell = cell.getNext()){
+            if(cell instanceof TableCell){
+                Map<Attribute, Object> style = bodyStyle();
+                if(header || ((TableCell) cell).isHeader()){
+                    style.put(TextAttribute.WEIGHT, TextAttribute.WEIGHT_BOLD);
+                }
+                cells.add(new PaintedBlock.TextItem(inlines(cell).toLines(style), new Font(style), null, null,
+                        0, 0, NO_BARS, CELL_PADDING_X, CELL_PADDING_Y, null, false));
+            }
+        }
+        return cells;
+    }
+
+    private void addText(Inline text, Map<Attribute, Object> style, float indent,
+                         float padX, float padY, Color background, boolean ruleBelow){
+        if(bars.length > 0){
+            style.put(TextAttribute.FOREGROUND, PaintedBlock.QUOTE_COLOR);
+        }
+        items.add(new PaintedBlock.TextItem(text.toLines(style), new Font(style), marker, checked,
+                indent, nextSpacing(), bars, padX, padY, background, ruleBelow));
+        marker = null;
+        checked = null;
+    }
+
+    /**
+     * @return space before the next item, after which the spacing is back to that of paragraphs.
+     */
+    private float nextSpacing(){
+        float space = items.isEmpty() ? 0 : spacing;
+        spacing = PARAGRAPH_SPACING;
+        return space;
+    }
+
+    private static Map<Attribute, Object> bodyStyle(){
+        Map<Attribute, Object> style = new HashMap<>();
+        style.put(TextAttribute.FAMILY, PaintedBlock.BODY_FAMILY);
+        style.put(TextAttribute.SIZE, PaintedBlock.BODY_SIZE);
+        style.put(TextAttribute.FOREGROUND, PaintedBlock.TEXT_COLOR);
+        return style;
+    }
+
+    private static Inline inlines(Node parent){
+        Inline text = new Inline();
+        appendInlines(parent, text);
+        return text;
+    }
+
+    private static void appendInlines(Node parent, Inline text){
+        for(Node node = parent.getFirstChild(); node != null; node = node.getNext()){
+            int start = text.length();
+            if(node instanceof Text){
+                text.append(node.getChars().unescape());
+            }
+            else if(node instanceof Code code){
+                text.append(code.getText().toString());
+                text.style(start, TextAttribute.FAMILY, PaintedBlock.CODE_FAMILY);
+                text.style(start, TextAttribute.BACKGROUND, PaintedBlock.CODE_BACKGROUND);
+            }
+            else if(node instanceof SoftLineBreak){
+                text.append(" ");
+            }
+            else if(node instanceof HardLineBreak){
+                text.append("\n");
+            }
+            else if(node instanceof Image image){
+                text.append(image.getText().toString());
+            }
+            else if(node.getFirstChild() != null){
+                appendInlines(node, text);
+                if(node instanceof StrongEmphasis){
+                    text.style(start, TextAttribute.WEIGHT, TextAttribute.WEIGHT_BOLD);
+                }
+                else if(node instanceof Emphasis){
+                    text.style(start, TextAttribute.POSTURE, TextAttribute.POSTURE_OBLIQUE);
+                }
+                else if(node instanceof Strikethrough){
+                    text.style(start, TextAttribute.STRIKETHROUGH, TextAttribute.STRIKETHROUGH_ON);
+                }
+                else if(node instanceof Link){
+                    text.style(start, TextAttribute.FOREGROUND, PaintedBlock.LINK_COLOR);
+                }
+            }
+            else{
+                text.append(node.getChars().toString());
+            }
+        }
+    }
+
+    /**
+     * Text of inline nodes with the style runs of their emphasis, code spans and links.
+     */
+    static final class Inline {
+        private record Run(int start, int end, Attribute attribute, Object value) {}
+
+        private final StringBuilder text;
+        private final List<Run> runs; // inner runs before the runs that enclose them
+
+        Inline(){
+            this.text = new StringBuilder();
+            this.runs = new ArrayList<>();
+        }
+
+        Inline append(String str){
+            text.append(str);
+            return this;
+        }
+
+        int length(){
+            return text.length();
+        }
+
+        /**
+         * Apply attribute to the text appended since start.
+         */
+        void style(int start, Attribute attribute, Object value){
+            if(start < text.length()){
+                runs.add(new Run(start, text.length(), attribute, value));
+            }
+        }
+
+        /**
+         * @return one styled string per line, the text split at hard line breaks,
+         * with base under the runs and inner runs over the ones enclosing them.
+         */
+        List<AttributedString> toLines(Map<Attribute, Object> base){
+            List<AttributedString> lines = new ArrayList<>();
+            int lineStart = 0;
+            while(true){
+                int lineEnd = text.indexOf("\n", lineStart);
+                if(lineEnd == -1){
+                    lineEnd = text.length();
+                }
+                lines.add(line(lineStart, lineEnd, base));
+                if(lineEnd == text.length()){
+                    return lines;
+                }
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        private AttributedString line(int start, int end, Map<Attribute, Object> base){
+            AttributedString line = new AttributedString(text.substring(start, end));
+            if(start == end){
+                return line;
+            }
+            line.addAttributes(base, 0, end - start);
+            for(int i = runs.size() - 1; i >= 0; i--){
+                Run run = runs.get(i);
+                int from = Math.max(run.start(), start);
+                int to = Math.min(run.end(), end);
+                if(from < to){
+                    line.addAttribute(run.attribute(), run.value(), from - start, to - start);
+                }
+            }
+            return line;
+        }
+    }
+}
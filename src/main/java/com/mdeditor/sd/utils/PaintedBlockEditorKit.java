@@ -0,0 +1,151 @@
+package com.mdeditor.sd.utils;
+
+import javax.swing.text.*;
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+
+/**
+ * Editor kit of blocks in painter mode, registered for "text/html" like SharedStyleSheetEditorKit,
+ * so a painted block reports the same content type as a rendered one.
+ * A document of this kit holds the block's mdText and its PaintedBlock, which a single view paints
+ * instead of the view per HTML element that HTMLEditorKit builds.
+ */
+public class PaintedBlockEditorKit extends StyledEditorKit {
+    private static final FontRenderContext DEFAULT_FRC = new FontRenderContext(null, true, true);
+
+    @Override
+    public String getContentType() {
+        return "text/html";
+    }
+
+    @Override
+    public ViewFactory getViewFactory() {
+        return PaintedBlockView::new;
+    }
+
+    @Override
+    public Object clone() {
+        return new PaintedBlockEditorKit();
+    }
+
+    /**
+     * @return new document of this kit showing painted.
+     */
+    public Document createDocument(PaintedBlock painted){
+        Document doc = createDefaultDocument();
+        doc.putProperty(PaintedBlock.class, painted);
+        try {
+            doc.insertString(0, painted.getMdText(), null);
+        } catch (BadLocationException e) {
+            throw new RuntimeException(e);
+        }
+        return doc;
+    }
+
+    /**
+     * @return block shown by doc, or null if doc was not created by createDocument().
+     */
+    public static PaintedBlock getPaintedBlock(Document doc){
+        return (PaintedBlock) doc.getProperty(PaintedBlock.class);
+    }
+
+    /**
+     * Paints the PaintedBlock of its document over the whole component.
+     * The text of the document is not shown, a painted block gets its caret only after it switched to mdText.
+     */
+    private static class PaintedBlockView extends View {
+        private float width;
+        private float height = -1;
+
+        PaintedBlockView(Element element){
+            super(element);
+        }
+
+        private PaintedBlock getPaintedBlock(){
+            return PaintedBlockEditorKit.getPaintedBlock(getDocument());
+        }
+
+        private FontRenderContext getFontRenderContext(){
+            Container container = getContainer();
+            return container == null ? DEFAULT_FRC : container.getFontMetrics(container.getFont()).getFontRenderContext();
+        }
+
+        /**
+         * @return width the block is laid out at, its preferred width until the component has a size.
+         */
+        private float getLayoutWidth(PaintedBlock painted){
+            if(width > 0 && width < Integer.MAX_VALUE / 2f){
+                return width;
+            }
+            return painted.getPreferredWidth(getFontRenderContext());
+        }
+
+        /**
+         * Heights depend on the width the text is wrapped at, so a new width may change the preferred height.
+         */
+        @Override
+        public void setSize(float width, float height) {
+            if(width == this.width){
+                return;
+            }
+            this.width = width;
+            PaintedBlock painted = getPaintedBlock();
+            if(painted == null){
+                return;
+            }
+            float newHeight = painted.getHeight(getLayoutWidth(painted), getFontRenderContext());
+            if(newHeight != this.height){
+                this.height = newHeight;
+                preferenceChanged(null, false, true);
+            }
+        }
+
+        @Override
+        public float getPreferredSpan(int axis) {
+            PaintedBlock painted = getPaintedBlock();
+            if(painted == null){
+                return 0;
+            }
+            if(axis == X_AXIS){
+                return painted.getPreferredWidth(getFontRenderContext());
+            }
+            height = painted.getHeight(getLayoutWidth(painted), getFontRenderContext());
+            return height;
+        }
+
+        @Override
+        public float getMinimumSpan(int axis) {
+            return axis == X_AXIS ? 0 : getPreferredSpan(axis);
+        }
+
+        @Override
+        public float getMaximumSpan(int axis) {
+            return axis == X_AXIS ? Integer.MAX_VALUE : getPreferredSpan(axis);
+        }
+
+        @Override
+        public void paint(Graphics g, Shape allocation) {
+            PaintedBlock painted = getPaintedBlock();
+            if(painted == null){
+                return;
+            }
+            Rectangle bounds = allocation.getBounds();
+            painted.paint((Graphics2D) g, bounds.x, bounds.y, getLayoutWidth(painted), getFontRenderContext());
+        }
+
+        @Override
+        public Shape modelToView(int pos, Shape a, Position.Bias b) throws BadLocationException {
+            if(pos < getStartOffset() || pos > getEndOffset()){
+                throw new BadLocationException("Position outside of the painted block", pos);
+            }
+            Rectangle bounds = a.getBounds();
+            return new Rectangle(bounds.x, bounds.y, 0, bounds.height);
+        }
+
+        @Override
+        public int viewToModel(float x, float y, Shape a, Position.Bias[] biasReturn) {
+            biasReturn[0] = Position.Bias.Forward;
+            return getStartOffset();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.mdeditor.sd.utils;
+
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.editor.EditorSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Renders the HTML of many blocks at once on a bounded ForkJoinPool.
+ * Only the mdText to HTML conversion, or to a PaintedBlock in painter mode, runs on the pool,
+ * which is safe because the flexmark parser and renderer in Utils are thread-safe.
+ * setText() on the blocks stays on the calling thread, i.e. the EDT for blocks shown in the editor.
+ * EditorSettings.getRenderParallelism() of 1 renders sequentially on the calling thread.
+ * The pool is created on first parallel use with the parallelism at that time and is never replaced,
+ * so callers on other threads never submit to a pool that was shut down; later changes above 1 keep its size.
+ */
+public final class ParallelRenderer {
+    private static ForkJoinPool pool;
+
+    private ParallelRenderer(){
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Show the rendered HTML in every block of blocks that does not show it yet.
+     * @param blocks blocks to render, owned by the calling thread
+     */
+    public static void renderHTML(List<? extends Block> blocks){
+        List<Block> pending = new ArrayList<>();
+        for(Block block : blocks){
+            if(block.needsRenderHTML()){
+                pending.add(block);
+            }
+        }
+
+        int n = pending.size();
+        String[] mdTexts = new String[n];
+        boolean[] sharedStyleSheet = new boolean[n];
+        boolean[] blockPainter = new boolean[n];
+        for(int i = 0; i < n; i++){
+            mdTexts[i] = pending.get(i).getMdText();
+            sharedStyleSheet[i] = pending.get(i).usesSharedStyleSheet();
+            blockPainter[i] = pending.get(i).usesBlockPainter();
+        }
+
+        String[] html = new String[n];
+        PaintedBlock[] painted = new PaintedBlock[n];
+        run(n, i -> {
+            if(blockPainter[i]){
+                painted[i] = PaintedBlock.of(mdTexts[i]);
+            }
+            else{
+                html[i] = Utils.renderBlockHtml(mdTexts[i], sharedStyleSheet[i]);
+            }
+        });
+
+        for(int i = 0; i < n; i++){
+            if(blockPainter[i]){
+                pending.get(i).showPainted(painted[i]);
+            }
+            else{
+                pending.get(i).showHTML(html[i]);
+            }
+        }
+    }
+
+    /**
+     * Fill the render cache for blocks not created yet. Safe to call from any thread.
+     * Nothing to do in painter mode, where blocks do not render HTML.
+     * @param mdTexts Markdown text of the future blocks
+     */
+    public static void prerender(List<String> mdTexts){
+        if(EditorSettings.isBlockPainter()){
+            return;
+        }
+        run(mdTexts.size(), i -> Utils.prerenderBlockHtml(mdTexts.get(i)));
+    }
+
+    /**
+     * Run task for 0 .. n-1 and wait until all are done.
+     */
+    private static void run(int n, IntConsumer task){
+        int parallelism = EditorSettings.getRenderParallelism();
+        if(parallelism <= 1 || n <= 1){
+            for(int i = 0; i < n; i++){
+                task.accept(i);
+            }
+            return;
+        }
+        getPool().submit(() -> IntStream.range(0, n).parallel().forEach(task)).join();
+    }
+
+    private static synchronized ForkJoinPool getPool(){
+        if(pool == null){
+            pool = new ForkJoinPool(EditorSettings.getRenderParallelism());
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,89 @@
+package com.mdeditor.sd.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache from Markdown text to its rendered HTML.
+ * The mdText itself is the key, so a lookup hashes the content and
+ * equal texts share one rendered result regardless of which block asks.
+ */
+public class RenderCache {
+    private final int capacity;
+    private final Function<String, String> renderer;
+    private final LinkedHashMap<String, String> entries;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * @param capacity maximum number of rendered texts kept in the cache
+     * @param renderer function used to render mdText on a cache miss
+     */
+    public RenderCache(int capacity, Function<String, String> renderer){
+        if(capacity <= 0){
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.renderer = renderer;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > RenderCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the rendered HTML of mdText, rendering it only on a cache miss.
+     * Rendering runs outside the lock, so concurrent misses may render twice.
+     * @param mdText Markdown text stored in a block
+     * @return rendered HTML of mdText
+     */
+    public String render(String mdText){
+        synchronized (this){
+            String cached = entries.get(mdText);
+            if(cached != null){
+                hitCount++;
+                return cached;
+            }
+            missCount++;
+        }
+
+        String rendered = renderer.apply(mdText);
+        synchronized (this){
+            entries.put(mdText, rendered);
+        }
+        return rendered;
+    }
+
+    /**
+     * @return true if mdText is already rendered in this cache.
+     */
+    public synchronized boolean contains(String mdText){
+        return entries.containsKey(mdText);
+    }
+
+    /**
+     * Drop every cached entry. Hit and miss counters are kept.
+     */
+    public synchronized void clear(){
+        entries.clear();
+    }
+
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    public int getCapacity(){
+        return capacity;
+    }
+
+    public synchronized long getHitCount(){
+        return hitCount;
+    }
+
+    public synchronized long getMissCount(){
+        return missCount;
+    }
+}
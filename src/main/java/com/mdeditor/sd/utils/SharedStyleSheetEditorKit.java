@@ -0,0 +1,19 @@
+package com.mdeditor.sd.utils;
+
+import javax.swing.text.html.HTMLEditorKit;
+import javax.swing.text.html.StyleSheet;
+
+/**
+ * HTMLEditorKit whose documents link to the stylesheet parsed once in Utils,
+ * so rendered blocks carry only their body fragment and no copy of the CSS.
+ * Each block still needs its own kit instance, because HTMLEditorKit keeps per-component state.
+ */
+public class SharedStyleSheetEditorKit extends HTMLEditorKit {
+    /**
+     * createDefaultDocument() links every new HTMLDocument to this stylesheet.
+     */
+    @Override
+    public StyleSheet getStyleSheet() {
+        return Utils.getSharedStyleSheet();
+    }
+}
@@ -0,0 +1,164 @@
+package com.mdeditor.sd.utils;
+
+import com.mdeditor.sd.editor.EditorSettings;
+import com.mdeditor.sd.manager.BlockEvent;
+
+import javax.swing.*;
+import java.awt.event.InputEvent;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in tracer of the latency from a key or mouse event in a block until its result is painted.
+ * A trace starts when the key or mouse event that made a block request an event from its manager happened,
+ * so the time the input waited in the EDT queue is included, and records the time since then
+ * at every stage below under "typing.EVENT.stage", e.g. typing.NEW_BLOCK.paint for keystroke-to-paint.
+ * Only keys that reach BlockManager.update() are traced, i.e. Enter, Backspace and the arrow keys,
+ * and clicks; plain character input is handled by the text pane alone and is not traced.
+ * The deferred stages run in later EDT turns, so code that schedules them takes current() with it.
+ * Only used on the EDT.
+ * @see EditorSettings#isTypingTrace()
+ */
+public final class TypingTracer {
+    /**
+     * Stages of an event in the order they complete.
+     */
+    public enum Stage {
+        RENDER, // BlockManager.renderAll() rendered the blocks
+        UPDATE, // BlockManager.update() returned
+        UI_UPDATE, // the editor applied the changes to its panel
+        CARET, // focus and caret restored
+        PAINT // the EDT turn after the last stage, so repaints queued until then are done
+    }
+
+    private static final String[][] METRIC_NAMES = new String[BlockEvent.values().length][Stage.values().length];
+    private static Trace current = Trace.NONE;
+
+    static {
+        for(BlockEvent event : BlockEvent.values()){
+            for(Stage stage : Stage.values()){
+                METRIC_NAMES[event.ordinal()][stage.ordinal()] =
+                        "typing." + event.name() + "." + stage.name().toLowerCase(Locale.ROOT);
+            }
+        }
+    }
+
+    /**
+     * Latency of one event, Trace.NONE if tracing is off.
+     */
+    public static class Trace {
+        public static final Trace NONE = new Trace(null, 0);
+
+        private final BlockEvent event;
+        private final long start;
+        private final Set<Stage> marked;
+
+        private Trace(BlockEvent event, long start){
+            this.event = event;
+            this.start = start;
+            this.marked = EnumSet.noneOf(Stage.class);
+        }
+
+        /**
+         * Record the time since the event under stage, only the first time the stage is reached.
+         */
+        public void mark(Stage stage){
+            if(this != NONE && marked.add(stage)){
+                Metrics.record(METRIC_NAMES[event.ordinal()][stage.ordinal()], System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Focus and caret are restored, the trace ends once they are painted.
+         */
+        public void caretRestored(){
+            mark(Stage.CARET);
+            schedulePaint();
+        }
+
+        private void schedulePaint(){
+            if(this != NONE){
+                SwingUtilities.invokeLater(() -> mark(Stage.PAINT));
+            }
+        }
+    }
+
+    private TypingTracer(){
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Start tracing event now, unless tracing is off or an event is already being handled.
+     * @return trace to pass to end(), Trace.NONE if nothing is traced
+     */
+    public static Trace begin(BlockEvent event){
+        return begin(event, null);
+    }
+
+    /**
+     * Same as begin(event), but the trace starts when cause happened.
+     * @param cause input event that led to event, null to start now
+     */
+    public static Trace begin(BlockEvent event, InputEvent cause){
+        if(!EditorSettings.isTypingTrace() || current != Trace.NONE){
+            return Trace.NONE;
+        }
+        current = new Trace(event, startOf(cause));
+        return current;
+    }
+
+    /**
+     * @return time of cause on the System.nanoTime() scale, now if there is none.
+     * InputEvent.getWhen() is wall-clock milliseconds, so it is converted by its age.
+     */
+    static long startOf(InputEvent cause){
+        long now = System.nanoTime();
+        if(cause == null || cause.getWhen() <= 0){
+            return now;
+        }
+        long age = System.currentTimeMillis() - cause.getWhen();
+        return now - TimeUnit.MILLISECONDS.toNanos(Math.max(0, age));
+    }
+
+    /**
+     * The event of trace was handled by the manager. Without a caret restore to wait for,
+     * the trace ends with the next EDT turn.
+     */
+    public static void end(Trace trace){
+        if(trace == Trace.NONE || trace != current){
+            return;
+        }
+        current = Trace.NONE;
+        trace.mark(Stage.UPDATE);
+        if(!trace.marked.contains(Stage.RENDER)){
+            trace.schedulePaint();
+        }
+    }
+
+    /**
+     * @return trace of the event being handled, Trace.NONE if none.
+     */
+    public static Trace current(){
+        return current;
+    }
+
+    /**
+     * @return keystroke-to-paint latency in milliseconds of every traced event type, e.g.
+     * "NEW_BLOCK p50=1.2 p95=3.4 p99=5.0 n=12", one per line.
+     */
+    public static String report(MetricsRegistry registry){
+        StringBuilder report = new StringBuilder();
+        for(BlockEvent event : BlockEvent.values()){
+            Histogram histogram = registry.getHistogram(METRIC_NAMES[event.ordinal()][Stage.PAINT.ordinal()]);
+            if(histogram == null){
+                continue;
+            }
+            Histogram.Summary summary = histogram.summary();
+            report.append(String.format(Locale.ROOT, "%s p50=%.1f p95=%.1f p99=%.1f n=%d%n", event.name(),
+                    summary.p50() / 1e6, summary.p95() / 1e6, summary.p99() / 1e6, summary.count()));
+        }
+        return report.toString();
+    }
+}
@@ -1,5 +1,6 @@
 package com.mdeditor.sd.utils;
 import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.editor.EditorSettings;
 import com.vladsch.flexmark.ext.gfm.strikethrough.StrikethroughExtension;
 import com.vladsch.flexmark.ext.gfm.tasklist.TaskListExtension;
 import com.vladsch.flexmark.ext.tables.TablesExtension;
@@ -10,21 +11,33 @@ import com.vladsch.flexmark.util.data.MutableDataSet;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 
+import javax.swing.text.html.HTMLEditorKit;
+import javax.swing.text.html.StyleSheet;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 
 public class Utils {
+    private static final String css;
     private static final String style;
+    private static final StyleSheet sharedStyleSheet;
     private static final Parser flexmarkParser;
     private static final HtmlRenderer flexHtmlRenderer;
+    private static final int RENDER_CACHE_CAPACITY = 512;
+    private static final RenderCache htmlCache;
+    private static final RenderCache fragmentCache;
 
     private Utils(){
         throw new IllegalStateException("Utility class");
     }
 
     static{
-        style = readCss();
+        css = readCssContent();
+        style = css.isEmpty() ? "" : wrapWithHtmlTag("style", css);
+        sharedStyleSheet = new StyleSheet();
+        // keep Swing's default.css underneath, as in the document of a plain HTMLEditorKit
+        sharedStyleSheet.addStyleSheet(new HTMLEditorKit().getStyleSheet());
+        sharedStyleSheet.addRule(css);
         MutableDataSet flexmarkOptions = new MutableDataSet().set(Parser.EXTENSIONS, Arrays.asList(
                         StrikethroughExtension.create(),
                         TablesExtension.create(),
@@ -35,23 +48,44 @@ public class Utils {
                 .set(StrikethroughExtension.STRIKETHROUGH_STYLE_HTML_CLOSE, "</s>");
         flexmarkParser = Parser.builder(flexmarkOptions).build();
         flexHtmlRenderer = HtmlRenderer.builder(flexmarkOptions).build();
+        htmlCache = new RenderCache(RENDER_CACHE_CAPACITY, Utils::stringToHtmlWithCss);
+        fragmentCache = new RenderCache(RENDER_CACHE_CAPACITY, Utils::renderFragment);
     }
 
     /**
      * Read CSS file from resource folder and save to static variable.
      */
     public static String readCss(){
+        String cssContent = readCssContent();
+        if(cssContent.isEmpty()) return "";
+
+        return Utils.wrapWithHtmlTag("style", cssContent);
+    }
+
+    /**
+     * Read CSS file from resource folder without wrapping it in a style tag.
+     * @return CSS text, or empty string if the resource is missing.
+     */
+    public static String readCssContent(){
         InputStream cssStream = Utils.class.getClassLoader().getResourceAsStream("editor/github-markdown-light.css");
         if(cssStream == null) return "";
 
-        try{
-            String cssContent = new String(cssStream.readAllBytes());
-            return Utils.wrapWithHtmlTag("style", cssContent);
+        try(cssStream){
+            return new String(cssStream.readAllBytes());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * @return StyleSheet parsed once from the CSS file on top of the default HTMLEditorKit rules,
+     * shared by every block in shared stylesheet mode.
+     * @see SharedStyleSheetEditorKit
+     */
+    public static StyleSheet getSharedStyleSheet(){
+        return sharedStyleSheet;
+    }
+
     /**
      * Wrap content with input tag.
      * @param tag HTML tag you want to wrap
@@ -78,9 +112,74 @@ public class Utils {
      * @return String that has string of html and CSS Rendered text.
      */
     public static String stringToHtmlWithCss(String string){
+        long start = Metrics.start();
         Document doc = Jsoup.parse(stringToHtml(string));
         doc.head().html(style);
-        return doc.outerHtml();
+        String html = doc.outerHtml();
+        Metrics.stop(Metrics.RENDER_HTML, start);
+        return html;
+    }
+
+    /**
+     * stringToHtml() on a miss of the fragment cache, timed as Metrics.RENDER_FRAGMENT.
+     */
+    private static String renderFragment(String mdText){
+        long start = Metrics.start();
+        String html = stringToHtml(mdText);
+        Metrics.stop(Metrics.RENDER_FRAGMENT, start);
+        return html;
+    }
+
+    /**
+     * Same result as stringToHtmlWithCss(), but served from the shared render cache
+     * so that unchanged mdText is never parsed and rendered twice.
+     * @param mdText which is stored in Block, Markdown Text.
+     * @return String that has string of html and CSS Rendered text.
+     */
+    public static String renderBlockHtml(String mdText){
+        return htmlCache.render(mdText);
+    }
+
+    /**
+     * Same result as stringToHtml(), served from the shared render cache.
+     * Used in shared stylesheet mode, where the CSS comes from the editor kit instead of the document.
+     * @param mdText which is stored in Block, Markdown Text.
+     * @return String that has only the html body fragment.
+     */
+    public static String renderBlockHtmlFragment(String mdText){
+        return fragmentCache.render(mdText);
+    }
+
+    /**
+     * Fill the render cache that a block created now will read from,
+     * without touching any Swing component. Safe to call from any thread.
+     * @param mdText which will be stored in a new Block, Markdown Text.
+     */
+    public static void prerenderBlockHtml(String mdText){
+        renderBlockHtml(mdText, EditorSettings.isSharedStyleSheet());
+    }
+
+    /**
+     * @param mdText which is stored in Block, Markdown Text.
+     * @param sharedStyleSheet true for the body fragment only, false for html with embedded CSS.
+     * @return cached result of renderBlockHtmlFragment() or renderBlockHtml().
+     */
+    public static String renderBlockHtml(String mdText, boolean sharedStyleSheet){
+        return sharedStyleSheet ? renderBlockHtmlFragment(mdText) : renderBlockHtml(mdText);
+    }
+
+    /**
+     * @return render cache used by renderBlockHtml().
+     */
+    public static RenderCache getRenderCache(){
+        return htmlCache;
+    }
+
+    /**
+     * @return render cache used by renderBlockHtmlFragment().
+     */
+    public static RenderCache getFragmentCache(){
+        return fragmentCache;
     }
 
     /**
@@ -101,23 +200,10 @@ public class Utils {
      * @param block block onFocus
      * @param whichLine which line of prefix
      * @return prefix
+     * @see LinePrefix#of(Block, int)
      */
     public static String getPrefix(Block block, int whichLine){
-        String curLine = block.getMdText().split("\n")[whichLine];
-        int start = block.getIndentAtLine(whichLine);
-        int end = curLine.indexOf(" ", start);
-        if (end == -1) end = curLine.length();
-        String prefix = curLine.substring(start, end);
-        if(prefix.equals(">") || prefix.equals("-") || prefix.equals("+")|| prefix.equals("*") || prefix.equals("|")) return prefix;
-        else if (prefix.endsWith(".")){
-            try {
-                Integer.parseInt(prefix.substring(0, prefix.length() - 1));
-                return prefix;
-            } catch (NumberFormatException e) {
-                return "";
-            }
-        }
-        else return "";
+        return LinePrefix.of(block, whichLine).text();
     }
 
     /**
@@ -125,33 +211,33 @@ public class Utils {
      * @return true if input is ordered list, false otherwise.
      */
     public static boolean isOL(String pre){
-        if(pre.endsWith(".")){
-            return pre.substring(0, pre.indexOf(".")).matches("\\d+");
+        if(!pre.endsWith(".")){
+            return false;
         }
-
-        return false;
+        int dot = pre.indexOf('.');
+        if(dot == 0){
+            return false;
+        }
+        for(int i = 0; i < dot; i++){
+            char c = pre.charAt(i);
+            if(c < '0' || c > '9'){
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
      * Determine if input block is multiline block or not.
+     * The marker is read from the text in the pane, at the indent of the first line of mdText.
      * @return true if input block's content can be multiline block, false otherwise.
      */
     public static boolean isBlockStringMultiline(Block block){
         String temp = block.getText();
         int start = block.getIndentAtLine(0);
-        int end = temp.indexOf(" ", start);
+        int end = temp.indexOf(' ', start);
         if (end == -1) return false;
 
-        String prefix = temp.substring(start, end);
-        if(prefix.equals(">") || prefix.equals("-") || prefix.equals("+")|| prefix.equals("*") || prefix.equals("|")) return true;
-        else if (prefix.endsWith(".")){
-            try {
-                Integer.parseInt(prefix.substring(0, prefix.length() - 1));
-                return true;
-            } catch (NumberFormatException e) {
-                return false;
-            }
-        }
-        else return false;
+        return LinePrefix.scan(temp, start, start, end).isMarker();
     }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.mdeditor.sd.editor.Autosaver;
+import com.mdeditor.sd.editor.DocumentPatcher;
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AutosaverTest {
+    BlockManager blockManager;
+    List<Runnable> uiQueue;
+    List<byte[]> writes;
+    long stamp;
+    Autosaver autosaver;
+
+    @BeforeEach
+    void setupAutosaver() {
+        blockManager = new BlockManager(mock(MarkdownEditor.class));
+        blockManager.setBlocks("# Head\n\n- a\n- b\n\nparagraph");
+        uiQueue = new ArrayList<>();
+        writes = new ArrayList<>();
+        autosaver = new Autosaver(blockManager, Runnable::run, uiQueue::add, new Autosaver.Target() {
+            @Override
+            public Charset getCharset() {
+                return StandardCharsets.UTF_8;
+            }
+
+            @Override
+            public long getModificationStamp() {
+                return stamp;
+            }
+
+            @Override
+            public void write(byte[] content) {
+                writes.add(content);
+                stamp++;
+            }
+        });
+    }
+
+    void runUiQueue() {
+        List<Runnable> tasks = List.copyOf(uiQueue);
+        uiQueue.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    @Test
+    void testSaveModified() {
+        blockManager.getBlockList().get(1).setMdText("- changed");
+        autosaver.saveNow();
+        runUiQueue();
+
+        assertEquals(1, writes.size());
+        assertArrayEquals(blockManager.extractFullMd().getBytes(StandardCharsets.UTF_8), writes.get(0));
+        assertFalse(blockManager.isModified());
+    }
+
+    @Test
+    void testSkipClean() {
+        autosaver.saveNow();
+        runUiQueue();
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    void testEditDuringSave() {
+        blockManager.getBlockList().get(1).setMdText("- changed");
+        autosaver.saveNow();
+        blockManager.getBlockList().get(2).setMdText("edited while saving");
+        runUiQueue();
+
+        assertEquals(1, writes.size());
+        assertTrue(blockManager.isModified());
+    }
+
+    @Test
+    void testOnlyLatestSnapshotWritten() {
+        blockManager.getBlockList().get(1).setMdText("- first");
+        autosaver.saveNow();
+        blockManager.getBlockList().get(1).setMdText("- second");
+        autosaver.saveNow();
+        runUiQueue();
+
+        assertEquals(1, writes.size());
+        assertTrue(new String(writes.get(0), StandardCharsets.UTF_8).contains("- second"));
+        assertFalse(blockManager.isModified());
+    }
+
+    @Test
+    void testFileChangedDuringSave() {
+        blockManager.getBlockList().get(1).setMdText("- changed");
+        autosaver.saveNow();
+        stamp++;
+        runUiQueue();
+
+        assertTrue(writes.isEmpty());
+        assertTrue(blockManager.isModified());
+    }
+
+    @Test
+    void testCancel() {
+        blockManager.getBlockList().get(1).setMdText("- changed");
+        autosaver.saveNow();
+        autosaver.cancel();
+        runUiQueue();
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    void testPatchSavesDocument() {
+        Document document = mock(Document.class);
+        when(document.getCharsSequence()).thenReturn("# Head\n\n- a\n- b\n\nparagraph\n\n");
+        FileDocumentManager fileDocumentManager = mock(FileDocumentManager.class);
+        DocumentPatcher documentPatcher = new DocumentPatcher();
+        Autosaver patching = new Autosaver(blockManager, Runnable::run, uiQueue::add, new Autosaver.Target() {
+            @Override
+            public Charset getCharset() {
+                return StandardCharsets.UTF_8;
+            }
+
+            @Override
+            public long getModificationStamp() {
+                return stamp;
+            }
+
+            @Override
+            public void write(byte[] content) {
+                writes.add(content);
+            }
+
+            @Override
+            public boolean patch(List<String> texts) {
+                documentPatcher.applyAndSave(document, texts, fileDocumentManager);
+                return true;
+            }
+        });
+
+        blockManager.getBlockList().get(2).setMdText("edited");
+        patching.saveNow();
+        runUiQueue();
+
+        verify(document).replaceString(17, 26, "edited");
+        verify(fileDocumentManager).saveDocument(document);
+        assertTrue(writes.isEmpty());
+        assertFalse(blockManager.isModified());
+    }
+}
@@ -0,0 +1,97 @@
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.editor.BlockLoader;
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class BlockLoaderTest {
+    BlockManager blockManager;
+    List<Runnable> uiQueue;
+    BlockLoader blockLoader;
+
+    @BeforeEach
+    void setupBlockLoader() {
+        blockManager = new BlockManager(mock(MarkdownEditor.class));
+        uiQueue = new ArrayList<>();
+        blockLoader = new BlockLoader(blockManager, Runnable::run, uiQueue::add);
+    }
+
+    @Test
+    void testLoadInChunks() {
+        String md = "# Head\n\n" + "paragraph\n\n".repeat(499);
+        AtomicBoolean done = new AtomicBoolean();
+        blockLoader.start(() -> md, () -> done.set(true));
+
+        assertTrue(uiQueue.size() > 1);
+        uiQueue.get(0).run();
+        assertFalse(blockLoader.isFinished());
+        assertTrue(blockManager.getBlockList().size() < 500);
+        assertEquals("# Head", blockManager.getBlockOnFocus().getMdText());
+
+        uiQueue.subList(1, uiQueue.size()).forEach(Runnable::run);
+        assertTrue(blockLoader.isFinished());
+        assertTrue(done.get());
+        assertEquals(500, blockManager.getBlockList().size());
+
+        BlockManager expected = new BlockManager(mock(MarkdownEditor.class));
+        expected.setBlocks(md);
+        assertEquals(expected.getBlockList().stream().map(Block::getMdText).toList(),
+                blockManager.getBlockList().stream().map(Block::getMdText).toList());
+    }
+
+    @Test
+    void testLoadEmpty() {
+        blockLoader.start(() -> "", () -> {});
+        uiQueue.forEach(Runnable::run);
+        assertTrue(blockLoader.isFinished());
+        assertEquals(1, blockManager.getBlockList().size());
+    }
+
+    @Test
+    void testCancel() {
+        blockLoader.start(() -> "paragraph\n\n".repeat(500), () -> {});
+        uiQueue.get(0).run();
+        int loaded = blockManager.getBlockList().size();
+        blockLoader.cancel();
+        uiQueue.forEach(Runnable::run);
+        assertFalse(blockLoader.isFinished());
+        assertEquals(loaded, blockManager.getBlockList().size());
+    }
+
+    @Test
+    void testLoadFails() {
+        IOException error = new IOException("unreadable");
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        blockLoader.start(() -> { throw error; }, () -> done.set(true), failure::set);
+
+        assertEquals(1, uiQueue.size());
+        assertFalse(blockLoader.isFailed());
+        uiQueue.forEach(Runnable::run);
+        assertTrue(blockLoader.isFailed());
+        assertSame(error, blockLoader.getFailure());
+        assertSame(error, failure.get());
+        assertFalse(blockLoader.isFinished());
+        assertFalse(done.get());
+    }
+
+    @Test
+    void testCancelBeforeFailure() {
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        blockLoader.start(() -> { throw new IOException("unreadable"); }, () -> {}, failure::set);
+        blockLoader.cancel();
+        uiQueue.forEach(Runnable::run);
+        assertFalse(blockLoader.isFailed());
+        assertNull(failure.get());
+    }
+}
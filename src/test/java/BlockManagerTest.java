@@ -1,19 +1,33 @@
 import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.manager.BlockChange;
+import com.mdeditor.sd.block.multi.MultiLine;
 import com.mdeditor.sd.block.multi.MultiLineBlock;
 import com.mdeditor.sd.block.single.SingleLineBlock;
 import com.mdeditor.sd.manager.BlockEvent;
 import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.manager.ParsedBlock;
+import com.mdeditor.sd.utils.Utils;
+import com.vladsch.flexmark.util.ast.Node;
 import com.mdeditor.sd.editor.MarkdownEditor;
 import org.apache.commons.lang3.tuple.Pair;
+import org.jsoup.Jsoup;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
-
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.mock;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
 
 class BlockManagerTest {
     MarkdownEditor markdownEditor;
@@ -181,6 +195,35 @@ and one more line""";
         assertEquals(-1, result2.getRight()); // Expecting -1 as no TABLE block is present
     }
 
+    @Test
+    void testGetTableIndexWithRepeatedContent() {
+        String table = """
+| a | b |
+|---|---|
+| 1 | 2 |""";
+        String markdown = "```\n" + table + "\n```\n\n" + table;
+        Pair<Integer, Integer> result = blockManager.getTableIndexFromMarkdownString(markdown);
+        assertEquals(markdown.lastIndexOf(table), result.getLeft());
+        assertEquals(markdown.length() - 1, result.getRight());
+    }
+
+    @Test
+    void testOffsetOfAndBlockAt() {
+        setupUpdateTest();
+        String fullMd = blockManager.extractFullMd();
+        for (Block block : blockManager.getBlockList()) {
+            int offset = blockManager.offsetOf(block);
+            assertTrue(fullMd.startsWith(block.getMdText() + "\n\n", offset));
+            assertSame(block, blockManager.blockAt(offset));
+        }
+        assertNull(blockManager.blockAt(fullMd.length()));
+
+        Block first = blockManager.getBlockList().get(0);
+        Block second = blockManager.getBlockList().get(1);
+        first.setMdText("# Head 1 longer");
+        assertEquals(first.getMdText().length() + 2, blockManager.offsetOf(second));
+    }
+
     @Test
     void testSetBlocks() {
         String md = """
@@ -246,6 +289,75 @@ and one more line""";
         assertEquals(blockManager.extractFullMd(), result);
     }
 
+    @Test
+    void testWriteFullMd() throws IOException {
+        String md = """
+# Head 1 ünïcödé 한글
+
+- UOL
+- UOL
+
+> Quote quot
+
+""" + "long paragraph ".repeat(2000) + """
+
+
+| a | b |
+|---|---|
+| 1 | 2 |""";
+        blockManager.setBlocks(md);
+        blockManager.getBlockOnFocus().setText("# Head 1 edited");
+
+        // every block followed by an empty line, the focused one with the text being edited
+        StringBuilder expected = new StringBuilder();
+        for (Block block : blockManager.getBlockList()) {
+            expected.append(block == blockManager.getBlockOnFocus() ? block.getText() : block.getMdText()).append("\n\n");
+        }
+        assertTrue(expected.toString().startsWith("# Head 1 edited\n\n- UOL\n- UOL\n\n> Quote quot\n\n"));
+        assertTrue(expected.toString().endsWith("\n\n| a | b |\n|---|---|\n| 1 | 2 |\n\n"));
+
+        for(Charset charset : List.of(StandardCharsets.UTF_8, StandardCharsets.UTF_16LE)){
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            blockManager.writeFullMd(out, charset);
+            assertArrayEquals(expected.toString().getBytes(charset), out.toByteArray());
+        }
+
+        StringWriter writer = new StringWriter();
+        BlockManager.writeFullMd(List.of("a", "- b\n- c"), writer);
+        assertEquals("a\n\n- b\n- c\n\n", writer.toString());
+    }
+
+    @Test
+    void testIsModified() {
+        setupUpdateTest();
+        assertFalse(blockManager.isModified());
+
+        Block focused = blockManager.getBlockOnFocus();
+        focused.setText("# Head 1 edited");
+        assertTrue(blockManager.isModified());
+        blockManager.update(focused, BlockEvent.UPDATE_BLOCK, 0);
+        assertTrue(focused.isDirty());
+        blockManager.markSaved();
+        assertFalse(blockManager.isModified());
+        assertFalse(focused.isDirty());
+
+        blockManager.getBlockList().get(2).setMdText("- changed");
+        assertTrue(blockManager.isModified());
+        blockManager.markSaved();
+
+        blockManager.update(focused, BlockEvent.NEW_BLOCK, 0);
+        assertTrue(blockManager.isModified());
+    }
+
+    @Test
+    void testIsModifiedAfterSync() {
+        setupUpdateTest();
+        blockManager.getBlockList().get(2).setMdText("- changed");
+        assertTrue(blockManager.isModified());
+        blockManager.syncBlocks(blockManager.extractFullMd());
+        assertFalse(blockManager.isModified());
+    }
+
     @ParameterizedTest(name = "testRenderAll_{index}")
     @CsvSource({"-1", "10", "150"})
     void testRenderAll(int pos) {
@@ -304,4 +416,297 @@ and one more line""";
         assertDoesNotThrow(() -> blockManager.manageBlock(1));
         assertEquals(1, blockManager.getBlockList().size());
     }
+
+    @Test
+    void testUpdateNEW_BLOCKKeepsOrder() {
+        setupUpdateTest();
+        List<Block> before = List.copyOf(blockManager.getBlockList());
+        blockManager.update(before.get(2), BlockEvent.NEW_BLOCK, 0);
+        List<Block> after = blockManager.getBlockList();
+        assertEquals(before.size() + 1, after.size());
+        assertSame(before.get(2), after.get(2));
+        assertSame(before.get(3), after.get(4));
+        assertSame(before.get(4), after.get(5));
+        assertEquals(3, after.indexOf(after.get(3)));
+    }
+
+    @Test
+    void testUpdateDELETE_BLOCKKeepsOrder() {
+        setupUpdateTest();
+        List<Block> before = List.copyOf(blockManager.getBlockList());
+        blockManager.update(before.get(2), BlockEvent.DELETE_BLOCK, 0);
+        List<Block> after = blockManager.getBlockList();
+        assertEquals(List.of(before.get(0), before.get(1), before.get(3), before.get(4)), List.copyOf(after));
+        assertEquals(-1, after.indexOf(before.get(2)));
+    }
+
+    @Test
+    void testUpdateTRANSFORMKeepsOrder() {
+        setupUpdateTest();
+        List<Block> before = List.copyOf(blockManager.getBlockList());
+        blockManager.update(before.get(2), BlockEvent.TRANSFORM_SINGLE, 0);
+        List<Block> after = blockManager.getBlockList();
+        assertNotSame(before.get(2), after.get(2));
+        assertEquals(2, after.indexOf(after.get(2)));
+        assertSame(before.get(3), after.get(3));
+
+        Block replaced = after.get(3);
+        blockManager.update(replaced, BlockEvent.TRANSFORM_MULTI, 0);
+        assertTrue(after.get(3) instanceof MultiLineBlock);
+        assertEquals(-1, after.indexOf(replaced));
+        assertSame(before.get(4), after.get(4));
+    }
+
+    @Test
+    void testSplitAndMergeKeepOrder() {
+        String md = """
+# Head 1
+
+> Quote
+
+- UOL
+
+# Head 2""";
+        blockManager.setBlocks(md);
+        List<Block> blocks = blockManager.getBlockList();
+        Block first = blocks.get(0);
+        Block last = blocks.get(3);
+
+        blocks.get(1).setMdText("> Quote\ntext\nmore");
+        blockManager.blockParse(1);
+        assertEquals(6, blocks.size());
+        assertEquals("> Quote", blocks.get(1).getMdText());
+        assertEquals("text", blocks.get(2).getMdText());
+        assertEquals("more", blocks.get(3).getMdText());
+        assertSame(first, blocks.get(0));
+        assertSame(last, blocks.get(5));
+
+        Block more = blocks.get(3);
+        blocks.get(2).setMdText("> again");
+        blockManager.manageBlock(2);
+        assertEquals(5, blocks.size());
+        assertEquals("> Quote\n> again", blocks.get(1).getMdText());
+        assertSame(first, blocks.get(0));
+        assertSame(more, blocks.get(2));
+        assertSame(last, blocks.get(4));
+        assertEquals(4, blocks.indexOf(last));
+    }
+
+    @Test
+    void testSyncBlocksReusesUnchangedBlocks() {
+        setupUpdateTest();
+        List<Block> before = List.copyOf(blockManager.getBlockList());
+        blockManager.syncBlocks("""
+# Head 1
+## Head 2
+### Head 3 changed
+
+- UOL
+- UOL
+
+> Quote quot
+                """);
+        List<Block> after = blockManager.getBlockList();
+        assertEquals(5, after.size());
+        assertSame(before.get(0), after.get(0));
+        assertSame(before.get(1), after.get(1));
+        assertNotSame(before.get(2), after.get(2));
+        assertEquals("### Head 3 changed", after.get(2).getMdText());
+        assertSame(before.get(3), after.get(3));
+        assertSame(before.get(4), after.get(4));
+    }
+
+    @Test
+    void testSyncBlocksInsertAndDelete() {
+        setupUpdateTest();
+        List<Block> before = List.copyOf(blockManager.getBlockList());
+        blockManager.syncBlocks("""
+# Head 1
+new paragraph
+
+- UOL
+- UOL
+
+> Quote quot
+                """);
+        List<Block> after = blockManager.getBlockList();
+        assertEquals(List.of("# Head 1", "new paragraph", "- UOL\n- UOL", "> Quote quot"),
+                after.stream().map(Block::getMdText).toList());
+        assertSame(before.get(0), after.get(0));
+        assertSame(before.get(3), after.get(2));
+        assertSame(before.get(4), after.get(3));
+    }
+
+    @Test
+    void testSyncBlocksUnchanged() {
+        setupUpdateTest();
+        List<Block> before = List.copyOf(blockManager.getBlockList());
+        blockManager.syncBlocks(blockManager.extractFullMd());
+        assertEquals(before, List.copyOf(blockManager.getBlockList()));
+    }
+
+    @Test
+    void testSyncBlocksReusesEditedMultiLineBlocks() {
+        blockManager.setBlocks("# Head\n\ntext\n\nquote\n\n1. one");
+        List<Block> blocks = blockManager.getBlockList();
+        blocks.get(1).setMdText("- a\n- b");
+        blocks.get(2).setMdText("> q");
+        blocks.get(3).setMdText("1. one\n2. two");
+        blockManager.blockParse(1);
+        blockManager.blockParse(2);
+        blockManager.blockParse(3);
+        List<Block> before = List.copyOf(blocks);
+        assertTrue(before.get(1) instanceof MultiLineBlock);
+        assertTrue(before.get(2) instanceof MultiLineBlock);
+
+        blockManager.syncBlocks(blockManager.extractFullMd());
+        assertEquals(4, blocks.size());
+        for (int i = 0; i < 4; i++) {
+            assertSame(before.get(i), blocks.get(i));
+        }
+    }
+
+    @Test
+    void testSyncBlocksWithoutBlocks() {
+        blockManager.syncBlocks("# Head 1");
+        assertEquals(1, blockManager.getBlockList().size());
+        assertEquals("# Head 1", blockManager.getBlockList().get(0).getMdText());
+    }
+
+    @Test
+    void testUpdateSendsStructuralChanges() {
+        setupUpdateTest();
+        Block block = blockManager.getBlockList().get(2);
+        blockManager.update(block, BlockEvent.NEW_BLOCK, 0);
+        Block inserted = blockManager.getBlockList().get(3);
+        verify(markdownEditor).updateUI(List.of(new BlockChange(BlockChange.Type.INSERTED, 3, inserted)));
+
+        blockManager.update(inserted, BlockEvent.DELETE_BLOCK, 0);
+        verify(markdownEditor).updateUI(List.of(new BlockChange(BlockChange.Type.REMOVED, 3, inserted)));
+
+        blockManager.update(block, BlockEvent.TRANSFORM_SINGLE, 0);
+        Block replaced = blockManager.getBlockList().get(2);
+        verify(markdownEditor).updateUI(List.of(new BlockChange(BlockChange.Type.REPLACED, 2, replaced)));
+    }
+
+    @Test
+    void testRenderAllWithoutChanges() {
+        setupUpdateTest();
+        blockManager.renderAll(0);
+        verify(markdownEditor, never()).updateUI(anyList());
+        verify(markdownEditor, times(1)).updateUI();
+    }
+
+    @ParameterizedTest(name = "testParseStringMatchesHtmlTag_{index}")
+    @ValueSource(strings = {
+            "# Head 1\n## Head 2\nparagraph",
+            "- UOL\n- UOL\n\n1. OL\n2. OL\n\n* [ ] task",
+            "> quote\n> quote\n\n---\n\n    indented code",
+            "```java\nint a;\n```\n\n| a | b |\n| - | - |\n| 1 | 2 |",
+            "<div>raw html</div>\n\n<table><tr><td>raw</td></tr></table>\n\ntext <b>bold</b>"
+    })
+    void testParseStringMatchesHtmlTag(String md) {
+        List<ParsedBlock> parsed = blockManager.parseString(md);
+        int i = 0;
+        for (Node child : Utils.flexmarkParse(md).getChildren()) {
+            String tagName = Jsoup.parse(Utils.flexmarkHtmlRender(child)).select("body > *").get(0).tagName();
+            assertEquals(MultiLine.fromString(tagName), parsed.get(i++).type());
+        }
+        assertEquals(i, parsed.size());
+    }
+
+    @Test
+    void testBlockParseLargePaste() {
+        blockManager.setBlocks("# Head 1");
+        StringBuilder pasted = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            pasted.append("- item ").append(i).append('\n');
+        }
+        pasted.append("after\nend");
+        List<Block> blocks = blockManager.getBlockList();
+        blocks.get(0).setMdText(pasted.toString());
+
+        assertDoesNotThrow(() -> blockManager.blockParse(0));
+        assertEquals(3, blocks.size());
+        assertTrue(blocks.get(0) instanceof MultiLineBlock);
+        assertEquals(10000, blocks.get(0).getMdText().split("\n").length);
+        assertEquals("after", blocks.get(1).getMdText());
+        assertEquals("end", blocks.get(2).getMdText());
+    }
+
+    @Test
+    void testBlockParseLargePasteWithoutSpaces() {
+        blockManager.setBlocks("# Head 1");
+        StringBuilder pasted = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            pasted.append("-\n");
+        }
+        pasted.append("after\nend");
+        List<Block> blocks = blockManager.getBlockList();
+        blocks.get(0).setMdText(pasted.toString());
+
+        assertTimeout(Duration.ofSeconds(5), () -> blockManager.blockParse(0));
+        assertEquals(3, blocks.size());
+        assertTrue(blocks.get(0) instanceof MultiLineBlock);
+        assertEquals(10000, blocks.get(0).getMdText().split("\n").length);
+        assertEquals("after", blocks.get(1).getMdText());
+        assertEquals("end", blocks.get(2).getMdText());
+    }
+
+    @Test
+    void testBlockParseAlternatingLines() {
+        blockManager.setBlocks("# Head 1");
+        StringBuilder pasted = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            pasted.append(i % 2 == 0 ? "- item" : "text").append('\n');
+        }
+        List<Block> blocks = blockManager.getBlockList();
+        blocks.get(0).setMdText(pasted.toString().strip());
+
+        assertDoesNotThrow(() -> blockManager.blockParse(0));
+        assertEquals(999, blocks.size());
+        for (int i = 0; i < 998; i++) {
+            assertEquals(i % 2 == 0 ? "- item" : "text", blocks.get(i).getMdText());
+            assertEquals(i % 2 == 0, blocks.get(i) instanceof MultiLineBlock);
+        }
+        assertEquals("- item\ntext", blocks.get(998).getMdText()); // the last line is never checked
+    }
+
+    @Test
+    void testMergeBlockLongRun() {
+        blockManager.setBlocks("# Head 1");
+        List<Block> blocks = blockManager.getBlockList();
+        for (int i = 0; i < 2000; i++) {
+            Block block = new MultiLineBlock(blockManager, "-");
+            block.setMdText("- item " + i);
+            blocks.add(block);
+        }
+        blocks.add(new SingleLineBlock(blockManager));
+        Block first = blocks.get(1);
+
+        assertDoesNotThrow(() -> blockManager.mergeBlock(1000));
+        assertEquals(3, blocks.size());
+        assertSame(first, blocks.get(1));
+        assertEquals(2000, blocks.get(1).getMdText().split("\n").length);
+        assertTrue(blocks.get(1).getMdText().endsWith("\n- item 1999"));
+    }
+
+    @Test
+    void testMergeBlockMovesFocus() {
+        String md = """
+> Quote
+- whut
+> cuote
+                """;
+        blockManager.setBlocks(md);
+        List<Block> blocks = blockManager.getBlockList();
+        Block first = blocks.get(0);
+        blockManager.update(blocks.get(2), BlockEvent.OUTFOCUS_CLICKED, 0);
+        blocks.get(1).setMdText("> whut");
+
+        blockManager.mergeBlock(1);
+        assertEquals(List.of(first), List.copyOf(blocks));
+        assertSame(first, blockManager.getBlockOnFocus());
+        assertTrue(first.getMdText().startsWith("> Quote\n> whut\n> cuote"));
+    }
 }
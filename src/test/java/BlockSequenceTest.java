@@ -0,0 +1,246 @@
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.manager.BlockChange;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.manager.BlockSequence;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class BlockSequenceTest {
+    BlockManager manager = mock(BlockManager.class);
+    BlockSequence sequence;
+    Block a, b, c;
+
+    @BeforeEach
+    void setupBlockSequence() {
+        sequence = new BlockSequence();
+        a = new Block(manager);
+        b = new Block(manager);
+        c = new Block(manager);
+    }
+
+    @Test
+    void testAddGetIndexOf() {
+        sequence.add(a);
+        sequence.add(c);
+        sequence.add(1, b);
+        assertEquals(List.of(a, b, c), new ArrayList<>(sequence));
+        assertEquals(0, sequence.indexOf(a));
+        assertEquals(1, sequence.indexOf(b));
+        assertEquals(2, sequence.indexOf(c));
+        assertEquals(b, sequence.get(1));
+    }
+
+    @Test
+    void testRemove() {
+        sequence.addAll(List.of(a, b, c));
+        assertTrue(sequence.remove(b));
+        assertFalse(sequence.remove(b));
+        assertEquals(-1, sequence.indexOf(b));
+        assertEquals(1, sequence.indexOf(c));
+        assertEquals(a, sequence.remove(0));
+        assertEquals(List.of(c), new ArrayList<>(sequence));
+    }
+
+    @Test
+    void testSetReplacesIdentity() {
+        sequence.addAll(List.of(a, b));
+        assertEquals(b, sequence.set(1, c));
+        assertFalse(sequence.contains(b));
+        assertEquals(1, sequence.indexOf(c));
+    }
+
+    @Test
+    void testRejectDuplicate() {
+        sequence.add(a);
+        assertThrows(IllegalArgumentException.class, () -> sequence.add(a));
+        assertThrows(NullPointerException.class, () -> sequence.add(null));
+        assertThrows(IndexOutOfBoundsException.class, () -> sequence.get(1));
+    }
+
+    @Test
+    void testIteratorRemove() {
+        sequence.addAll(List.of(a, b, c));
+        Iterator<Block> it = sequence.iterator();
+        it.next();
+        it.next();
+        it.remove();
+        assertEquals(c, it.next());
+        assertFalse(it.hasNext());
+        assertEquals(List.of(a, c), new ArrayList<>(sequence));
+    }
+
+    @Test
+    void testMatchesArrayList() {
+        Random random = new Random(332);
+        List<Block> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) != 0) {
+                Block block = new Block(manager);
+                int idx = random.nextInt(expected.size() + 1);
+                expected.add(idx, block);
+                sequence.add(idx, block);
+            } else {
+                int idx = random.nextInt(expected.size());
+                assertEquals(expected.remove(idx), sequence.remove(idx));
+            }
+        }
+        assertEquals(expected, new ArrayList<>(sequence));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i, sequence.indexOf(expected.get(i)));
+        }
+    }
+
+    @Test
+    void testChangeListener() {
+        List<BlockChange> changes = new ArrayList<>();
+        sequence.setChangeListener(changes::add);
+        sequence.add(a);
+        sequence.add(0, b);
+        sequence.set(1, c);
+        sequence.remove(b);
+        sequence.clear();
+        assertEquals(List.of(
+                new BlockChange(BlockChange.Type.INSERTED, 0, a),
+                new BlockChange(BlockChange.Type.INSERTED, 0, b),
+                new BlockChange(BlockChange.Type.REPLACED, 1, c),
+                new BlockChange(BlockChange.Type.REMOVED, 0, b)), changes);
+    }
+
+    @Test
+    void testOffsetOfAndBlockAt() {
+        a.setMdText("# Head");
+        b.setMdText("");
+        c.setMdText("text");
+        sequence.addAll(List.of(a, b, c));
+        assertEquals(16, sequence.textLength());
+        assertEquals(0, sequence.offsetOf(a));
+        assertEquals(8, sequence.offsetOf(b));
+        assertEquals(10, sequence.offsetOf(c));
+        assertEquals(a, sequence.blockAt(0));
+        assertEquals(a, sequence.blockAt(7));
+        assertEquals(b, sequence.blockAt(9));
+        assertEquals(c, sequence.blockAt(15));
+        assertNull(sequence.blockAt(16));
+        assertNull(sequence.blockAt(-1));
+
+        a.setMdText("#");
+        sequence.textChanged(a);
+        assertEquals(3, sequence.offsetOf(b));
+        assertEquals(-1, sequence.offsetOf(new Block(manager)));
+    }
+
+    @Test
+    void testOffsetsAgainstList() {
+        Random random = new Random(332);
+        List<Block> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int op = random.nextInt(3);
+            if (expected.isEmpty() || op == 0) {
+                Block block = new Block(manager);
+                block.setMdText("x".repeat(random.nextInt(20)));
+                int idx = random.nextInt(expected.size() + 1);
+                expected.add(idx, block);
+                sequence.add(idx, block);
+            }
+            else if (op == 1) {
+                int idx = random.nextInt(expected.size());
+                expected.remove(idx);
+                sequence.remove(idx);
+            }
+            else {
+                Block block = expected.get(random.nextInt(expected.size()));
+                block.setMdText("y".repeat(random.nextInt(20)));
+                sequence.textChanged(block);
+            }
+
+            int offset = 0;
+            for (Block block : expected) {
+                assertEquals(offset, sequence.offsetOf(block));
+                assertEquals(block, sequence.blockAt(offset));
+                offset += block.getMdText().length() + 2;
+                assertEquals(block, sequence.blockAt(offset - 1));
+            }
+            assertEquals(offset, sequence.textLength());
+        }
+    }
+
+    @Test
+    void testHeights() {
+        a.setMdText("a");
+        b.setMdText("b\nb");
+        c.setMdText("c\nc\nc");
+        sequence.addAll(List.of(a, b, c));
+        assertEquals(0, sequence.totalHeight());
+        assertEquals(2, sequence.indexAtY(100));
+
+        sequence.setHeightEstimator(block -> 10 * block.getMdText().split("\n").length);
+        assertEquals(60, sequence.totalHeight());
+        assertEquals(0, sequence.topOf(a));
+        assertEquals(10, sequence.topOf(b));
+        assertEquals(30, sequence.topOf(c));
+        assertEquals(0, sequence.indexAtY(-5));
+        assertEquals(0, sequence.indexAtY(9));
+        assertEquals(1, sequence.indexAtY(10));
+        assertEquals(2, sequence.indexAtY(59));
+        assertEquals(2, sequence.indexAtY(1000));
+
+        sequence.setHeight(b, 50);
+        assertEquals(50, sequence.heightOf(b));
+        assertEquals(60, sequence.topOf(c));
+
+        // a text change drops the measured height for a new estimate
+        b.setMdText("b");
+        sequence.textChanged(b);
+        assertEquals(10, sequence.heightOf(b));
+        assertEquals(20, sequence.topOf(c));
+
+        Block d = new Block(manager);
+        d.setMdText("d");
+        sequence.add(0, d);
+        assertEquals(10, sequence.topOf(a));
+        assertEquals(-1, sequence.topOf(new Block(manager)));
+        assertEquals(-1, new BlockSequence().indexAtY(0));
+    }
+
+    @Test
+    void testHeightsAgainstList() {
+        Random random = new Random(332);
+        List<Block> expected = new ArrayList<>();
+        sequence.setHeightEstimator(block -> block.getMdText().length());
+        for (int i = 0; i < 2000; i++) {
+            int op = random.nextInt(3);
+            if (expected.isEmpty() || op == 0) {
+                Block block = new Block(manager);
+                block.setMdText("x".repeat(random.nextInt(20)));
+                int idx = random.nextInt(expected.size() + 1);
+                expected.add(idx, block);
+                sequence.add(idx, block);
+            }
+            else if (op == 1) {
+                expected.remove(sequence.remove(random.nextInt(expected.size())));
+            }
+            else {
+                sequence.setHeight(expected.get(random.nextInt(expected.size())), random.nextInt(20));
+            }
+
+            int y = 0;
+            for (int idx = 0; idx < expected.size(); idx++) {
+                Block block = expected.get(idx);
+                assertEquals(y, sequence.topOf(block));
+                if (sequence.heightOf(block) > 0) {
+                    assertEquals(idx, sequence.indexAtY(y));
+                }
+                y += sequence.heightOf(block);
+            }
+            assertEquals(y, sequence.totalHeight());
+        }
+    }
+}
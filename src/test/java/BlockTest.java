@@ -1,6 +1,8 @@
 import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.editor.EditorSettings;
 import com.mdeditor.sd.manager.BlockEvent;
 import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.utils.Utils;
 import org.jsoup.Jsoup;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,6 +10,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
 import javax.swing.*;
+import javax.swing.text.html.HTMLDocument;
+import javax.swing.text.html.StyleSheet;
 import java.awt.event.MouseEvent;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,6 +33,19 @@ class BlockTest {
         assertEquals(block.getMdText(), content);
     }
 
+    @Test
+    void testDirtyFlag() {
+        assertFalse(block.isDirty());
+        block.setMdText("# Head1");
+        assertTrue(block.isDirty());
+        verify(manager).blockTextChanged(block);
+
+        block.markClean();
+        block.setMdText("# Head1");
+        assertFalse(block.isDirty());
+        verify(manager, times(1)).blockTextChanged(block);
+    }
+
     @Test
     void testBlockRenderHTML() {
         String content = "# Head1";
@@ -43,6 +60,65 @@ class BlockTest {
         assertEquals("<h1> Head1 </h1>", test);
     }
 
+    @Test
+    void testBlockRenderHTMLSharedStyleSheet() {
+        EditorSettings.setSharedStyleSheet(true);
+        try {
+            Block shared = new Block(manager);
+            shared.setMdText("# Head1");
+            shared.renderHTML();
+            assertEquals("text/html", shared.getContentType());
+            assertTrue(Jsoup.parse(shared.getText()).head().select("style").isEmpty());
+            assertEquals("<h1> Head1 </h1>", Jsoup.parse(shared.getText()).select("body > *").get(0).outerHtml());
+
+            StyleSheet[] linked = ((HTMLDocument) shared.getDocument()).getStyleSheet().getStyleSheets();
+            assertNotNull(linked);
+            assertSame(Utils.getSharedStyleSheet(), linked[0]);
+        } finally {
+            EditorSettings.setSharedStyleSheet(false);
+        }
+    }
+
+    @Test
+    void testDeferRenderHTML() {
+        block.setMdText("# Head1");
+        block.deferRenderHTML();
+        assertTrue(block.isRenderDeferred());
+        assertTrue(block.needsRenderHTML());
+        assertEquals("text/plain", block.getContentType());
+        assertEquals("# Head1", block.getText());
+
+        block.setMdText("# Head2");
+        assertFalse(block.isRenderDeferred());
+
+        block.deferRenderHTML();
+        block.renderMD();
+        assertFalse(block.isRenderDeferred());
+
+        block.deferRenderHTML();
+        block.renderHTML();
+        assertFalse(block.isRenderDeferred());
+        assertEquals("text/html", block.getContentType());
+    }
+
+    @Test
+    void testBlockRenderHTMLUnchanged() {
+        block.setMdText("# Head1 cached");
+        block.renderHTML();
+        String rendered = block.getText();
+        long hits = Utils.getRenderCache().getHitCount();
+        long misses = Utils.getRenderCache().getMissCount();
+        block.renderHTML();
+        assertEquals(rendered, block.getText());
+        assertEquals(hits, Utils.getRenderCache().getHitCount());
+        assertEquals(misses, Utils.getRenderCache().getMissCount());
+
+        block.renderMD();
+        block.renderHTML();
+        assertEquals(hits + 1, Utils.getRenderCache().getHitCount());
+        assertEquals(misses, Utils.getRenderCache().getMissCount());
+    }
+
     @Test
     void testRenderMD() {
         String content = "# Head1";
@@ -209,4 +285,22 @@ class BlockTest {
         block.setCaretPosition(md.length());
         assertEquals(2, block.getWhichLine(md.split("\n")));
     }
+
+    @Test
+    void testLineIndexFollowsMdText() {
+        String md = """
+       # Head with indent
+           * uol with indent
+         + something with indent
+                """;
+        block.setMdText(md);
+        block.renderMD();
+        block.setCaretPosition(20);
+        assertEquals(block.getWhichLine(md.split("\n")), block.getWhichLine());
+        assertEquals(3, block.getLineIndex().lineCount());
+
+        block.setMdText("- one line");
+        assertEquals(1, block.getLineIndex().lineCount());
+        assertEquals("- one line", block.getLineIndex().line(0));
+    }
 }
@@ -0,0 +1,105 @@
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.editor.BlockViewport;
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ContainerAdapter;
+import java.awt.event.ContainerEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class BlockViewportTest {
+    BlockManager blockManager;
+    Box interiorPanel;
+    JViewport viewport;
+    BlockViewport blockViewport;
+
+    @BeforeEach
+    void setupBlockViewport() {
+        blockManager = new BlockManager(mock(MarkdownEditor.class));
+        blockManager.setBlocks("paragraph\n\n".repeat(500));
+
+        interiorPanel = Box.createVerticalBox();
+        JPanel wrapper = new JPanel(new BorderLayout());
+        wrapper.add(interiorPanel, BorderLayout.PAGE_START);
+        viewport = new JViewport();
+        viewport.setView(wrapper);
+        viewport.setSize(400, 300);
+        blockViewport = new BlockViewport(interiorPanel, viewport, blockManager);
+    }
+
+    @Test
+    void testOnlyVisibleBlocksRealized() {
+        blockViewport.refresh(true);
+        int realized = blockViewport.getRealizedBlocks().size();
+        assertTrue(realized > 0);
+        assertTrue(realized < 100);
+        assertTrue(interiorPanel.getComponentCount() <= realized + 2);
+        assertSame(blockManager.getBlockList().get(0), blockViewport.getRealizedBlocks().get(0));
+    }
+
+    @Test
+    void testScrollRealizesOtherBlocks() {
+        blockViewport.refresh(true);
+        interiorPanel.setSize(400, interiorPanel.getPreferredSize().height);
+        viewport.setViewPosition(new Point(0, interiorPanel.getPreferredSize().height / 2));
+
+        Block focus = blockManager.getBlockOnFocus();
+        assertTrue(blockViewport.getRealizedBlocks().contains(focus));
+        assertTrue(blockViewport.getRealizedBlocks().contains(blockManager.getBlockList().get(250)));
+        assertFalse(blockViewport.getRealizedBlocks().contains(blockManager.getBlockList().get(1)));
+    }
+
+    @Test
+    void testFillersKeepTotalHeight() {
+        blockViewport.refresh(true);
+        int height = interiorPanel.getPreferredSize().height;
+        viewport.setViewPosition(new Point(0, height / 2));
+        assertTrue(Math.abs(height - interiorPanel.getPreferredSize().height) < height / 10);
+    }
+
+    @Test
+    void testScrollKeepsBlocksInBothRanges() {
+        blockViewport.refresh(true);
+        List<Block> before = new ArrayList<>(blockViewport.getRealizedBlocks());
+        List<Component> removed = new ArrayList<>();
+        interiorPanel.addContainerListener(new ContainerAdapter() {
+            @Override
+            public void componentRemoved(ContainerEvent e) {
+                if (e.getChild() instanceof Block) {
+                    removed.add(e.getChild());
+                }
+            }
+        });
+
+        viewport.setViewPosition(new Point(0, 150));
+        List<Block> after = blockViewport.getRealizedBlocks();
+        assertTrue(removed.size() < before.size());
+        for (Block block : before) {
+            if (after.contains(block)) {
+                assertFalse(removed.contains(block));
+                assertSame(interiorPanel, block.getParent());
+            }
+        }
+    }
+
+    @Test
+    void testTextChangeUpdatesHeight() {
+        blockViewport.refresh(true);
+        int height = interiorPanel.getPreferredSize().height;
+        Block block = blockManager.getBlockList().get(400);
+        assertFalse(blockViewport.getRealizedBlocks().contains(block));
+
+        block.setMdText("line\n".repeat(100));
+        blockManager.blockTextChanged(block);
+        blockViewport.refresh(true);
+        assertTrue(interiorPanel.getPreferredSize().height > height);
+    }
+}
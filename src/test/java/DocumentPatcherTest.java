@@ -0,0 +1,61 @@
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.mdeditor.sd.editor.DocumentPatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+class DocumentPatcherTest {
+    Document document;
+    DocumentPatcher documentPatcher;
+
+    @BeforeEach
+    void setupDocumentPatcher() {
+        document = mock(Document.class);
+        documentPatcher = new DocumentPatcher();
+    }
+
+    @Test
+    void testFirstApplyDiffsDocumentText() {
+        when(document.getCharsSequence()).thenReturn("# Head\n- a\n\ntext\n");
+        documentPatcher.apply(document, List.of("# Head\n- a", "text"));
+        verify(document).replaceString(17, 17, "\n");
+    }
+
+    @Test
+    void testLaterApplyDiffsBlocks() {
+        when(document.getCharsSequence()).thenReturn("# Head\n\ntext\n\n");
+        documentPatcher.apply(document, List.of("# Head", "text"));
+        verify(document, never()).replaceString(anyInt(), anyInt(), any());
+
+        documentPatcher.apply(document, List.of("# Head", "text edited"));
+        verify(document).replaceString(12, 12, " edited");
+        verify(document, times(1)).getCharsSequence();
+    }
+
+    @Test
+    void testChangedDocumentIsDiffedAgain() {
+        when(document.getCharsSequence()).thenReturn("# Head\n\ntext\n\n");
+        documentPatcher.apply(document, List.of("# Head", "text"));
+
+        when(document.getModificationStamp()).thenReturn(1L);
+        when(document.getCharsSequence()).thenReturn("# Head\n\ntext changed elsewhere\n\n");
+        documentPatcher.apply(document, List.of("# Head", "text"));
+        verify(document).replaceString(12, 30, "");
+    }
+
+    @Test
+    void testApplyAndSave() {
+        FileDocumentManager fileDocumentManager = mock(FileDocumentManager.class);
+        when(document.getCharsSequence()).thenReturn("# Head\n\ntext\n\n");
+        documentPatcher.applyAndSave(document, List.of("# Head", "text edited"), fileDocumentManager);
+
+        InOrder order = inOrder(document, fileDocumentManager);
+        order.verify(document).replaceString(12, 12, " edited");
+        order.verify(fileDocumentManager).saveDocument(document);
+    }
+}
@@ -0,0 +1,95 @@
+import com.mdeditor.sd.utils.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+    @Test
+    void testEmpty() {
+        Histogram histogram = new Histogram();
+        Histogram.Summary summary = histogram.summary();
+        assertEquals(0, summary.count());
+        assertEquals(0, summary.mean());
+        assertEquals(0, summary.p50());
+        assertEquals(0, summary.p99());
+    }
+
+    @Test
+    void testSummary() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        Histogram.Summary summary = histogram.summary();
+        assertEquals(100, summary.count());
+        assertEquals(5050, summary.total());
+        assertEquals(50, summary.mean());
+        assertEquals(100, summary.max());
+        assertEquals(100, summary.last());
+        // upper bounds of the power-of-two buckets
+        assertEquals(63, summary.p50());
+        assertEquals(100, summary.p95());
+        assertEquals(100, summary.p99());
+    }
+
+    @Test
+    void testPercentileWithinFactorOfTwo() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(i == 999 ? 1_000_000 : 1000 + i);
+        }
+        long p50 = histogram.percentile(0.5);
+        assertTrue(p50 >= 1499 && p50 < 2 * 1499, String.valueOf(p50));
+        assertTrue(histogram.percentile(0.99) < 4096);
+        assertEquals(1_000_000, histogram.percentile(1));
+    }
+
+    @Test
+    void testZeroAndNegative() {
+        Histogram histogram = new Histogram();
+        histogram.record(0);
+        histogram.record(-5);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.summary().total());
+        assertEquals(0, histogram.percentile(0.99));
+    }
+
+    @Test
+    void testLargeValue() {
+        Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.percentile(0.5));
+    }
+
+    @Test
+    void testReset() {
+        Histogram histogram = new Histogram();
+        histogram.record(10);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.summary().max());
+    }
+
+    @Test
+    void testConcurrentRecord() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, histogram.getCount());
+        assertEquals(9999, histogram.summary().max());
+    }
+}
@@ -0,0 +1,100 @@
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.editor.EditorSettings;
+import com.mdeditor.sd.editor.LazyRenderer;
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class LazyRendererTest {
+    BlockManager blockManager;
+    Box interiorPanel;
+    JViewport viewport;
+    LazyRenderer lazyRenderer;
+
+    @BeforeEach
+    void setupLazyRenderer() {
+        EditorSettings.setLazyRendering(true);
+        try {
+            blockManager = new BlockManager(mock(MarkdownEditor.class));
+        } finally {
+            EditorSettings.setLazyRendering(false);
+        }
+        blockManager.setBlocks("paragraph\n\n".repeat(500));
+
+        interiorPanel = Box.createVerticalBox();
+        for (Block block : blockManager.getBlockList()) {
+            interiorPanel.add(block);
+        }
+        JPanel wrapper = new JPanel(new BorderLayout());
+        wrapper.add(interiorPanel, BorderLayout.PAGE_START);
+        viewport = new JViewport();
+        viewport.setView(wrapper);
+        viewport.setSize(400, 300);
+        interiorPanel.setSize(400, interiorPanel.getPreferredSize().height);
+        interiorPanel.doLayout();
+        lazyRenderer = new LazyRenderer(interiorPanel, viewport, blockManager);
+    }
+
+    @Test
+    void testBlocksDeferredUntilVisible() {
+        assertTrue(blockManager.isLazyRendering());
+        List<Block> blocks = blockManager.getBlockList();
+        assertFalse(blockManager.getBlockOnFocus().isRenderDeferred());
+        for (int i = 1; i < blocks.size(); i++) {
+            assertTrue(blocks.get(i).isRenderDeferred());
+            assertEquals("text/plain", blocks.get(i).getContentType());
+            assertEquals("paragraph", blocks.get(i).getText());
+        }
+    }
+
+    @Test
+    void testOnlyPrefetchWindowRendered() {
+        List<Block> visible = lazyRenderer.findVisibleDeferred();
+        assertTrue(visible.size() > 0);
+        assertTrue(visible.size() < 100);
+        assertSame(blockManager.getBlockList().get(1), visible.get(0));
+
+        lazyRenderer.renderVisible();
+        List<Block> blocks = blockManager.getBlockList();
+        assertEquals("text/html", blocks.get(1).getContentType());
+        assertFalse(blocks.get(1).isRenderDeferred());
+        assertTrue(blocks.get(400).isRenderDeferred());
+    }
+
+    @Test
+    void testScrollRendersOtherBlocks() {
+        List<Block> blocks = blockManager.getBlockList();
+        viewport.setViewPosition(new Point(0, blocks.get(250).getY()));
+
+        assertFalse(blocks.get(250).isRenderDeferred());
+        assertEquals("text/html", blocks.get(250).getContentType());
+        assertTrue(blocks.get(1).isRenderDeferred());
+        assertTrue(blocks.get(499).isRenderDeferred());
+    }
+
+    @Test
+    void testRenderAllKeepsDeferredBlocks() {
+        blockManager.renderAll(0);
+        assertTrue(blockManager.getBlockList().get(1).isRenderDeferred());
+    }
+
+    @Test
+    void testBlocksNotLaidOutSkipped() {
+        Block added = new Block(blockManager);
+        added.setMdText("paragraph");
+        added.deferRenderHTML();
+        interiorPanel.add(added, 1);
+
+        assertFalse(lazyRenderer.findVisibleDeferred().contains(added));
+        interiorPanel.doLayout();
+        assertTrue(lazyRenderer.findVisibleDeferred().contains(added));
+    }
+}
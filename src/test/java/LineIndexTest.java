@@ -0,0 +1,43 @@
+import com.mdeditor.sd.utils.LineIndex;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineIndexTest {
+    /**
+     * Reference implementation, as Block.getWhichLine(String[]).
+     */
+    int whichLine(String[] lines, int caret) {
+        int totalChars = 0;
+        for (int i = 0; i < lines.length; i++) {
+            totalChars += lines[i].length() + 1;
+            if (totalChars > caret) {
+                return i;
+            }
+        }
+        return lines.length - 1;
+    }
+
+    @ParameterizedTest(name = "testSameAsSplit_{index}")
+    @ValueSource(strings = {"", "one line", "\n", "\n\n", "a\n", "a\n\n\n", "\na", "a\n\nb", "  - a\n    - b\n", "> q\n>\n> r"})
+    void testSameAsSplit(String text) {
+        String[] lines = text.split("\n");
+        LineIndex index = new LineIndex(text);
+        assertEquals(lines.length, index.lineCount());
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(lines[i], index.line(i));
+            assertEquals(lines[i].length() - lines[i].stripLeading().length(), index.indentAt(i));
+        }
+        for (int caret = -1; caret <= text.length() + 1; caret++) {
+            assertEquals(whichLine(lines, caret), index.lineAt(caret));
+        }
+    }
+
+    @ParameterizedTest(name = "testOutOfRange_{index}")
+    @ValueSource(ints = {-1, 2})
+    void testOutOfRange(int line) {
+        LineIndex index = new LineIndex("a\nb");
+        assertThrows(IndexOutOfBoundsException.class, () -> index.lineStart(line));
+    }
+}
@@ -0,0 +1,124 @@
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.utils.LinePrefix;
+import com.mdeditor.sd.utils.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LinePrefixTest {
+    BlockManager manager = mock(BlockManager.class);
+
+    /**
+     * Reference implementation, as Utils.getPrefix(block, line) was written before LinePrefix.
+     */
+    String getPrefix(String mdText, int whichLine) {
+        String line = mdText.split("\n")[whichLine];
+        int start = 0;
+        while (start < line.length() && line.charAt(start) == ' ') start++;
+        int end = line.indexOf(' ', start);
+        if (end == -1) end = line.length();
+        String prefix = line.substring(start, end);
+        if (prefix.equals(">") || prefix.equals("-") || prefix.equals("+") || prefix.equals("*") || prefix.equals("|")) return prefix;
+        else if (prefix.endsWith(".")) {
+            try {
+                Integer.parseInt(prefix.substring(0, prefix.length() - 1));
+                return prefix;
+            } catch (NumberFormatException e) {
+                return "";
+            }
+        }
+        else return "";
+    }
+
+    /**
+     * Reference implementation, as Utils.isOL(pre) was written before LinePrefix.
+     */
+    boolean isOL(String pre) {
+        if (pre.endsWith(".")) {
+            return pre.substring(0, pre.indexOf(".")).matches("\\d+");
+        }
+        return false;
+    }
+
+    Block blockOf(String mdText) {
+        Block block = new Block(manager);
+        block.setMdText(mdText);
+        return block;
+    }
+
+    void assertSameAsReference(String mdText) {
+        Block block = blockOf(mdText);
+        String[] lines = mdText.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            String expected = getPrefix(mdText, i);
+            LinePrefix prefix = LinePrefix.of(block, i);
+            assertEquals(expected, prefix.text(), mdText);
+            assertEquals(expected, Utils.getPrefix(block, i), mdText);
+            assertEquals(!expected.isEmpty(), prefix.isMarker(), mdText);
+            assertEquals(isOL(expected), prefix.isOrdered(), mdText);
+            assertEquals(isOL(expected), Utils.isOL(expected), mdText);
+            boolean empty = Pattern.compile("^[ ]*" + Pattern.quote(expected) + "?[ ]*$").matcher(lines[i]).matches();
+            assertEquals(empty, prefix.isEmptyItem(), mdText);
+            if (expected.endsWith(".")) {
+                assertEquals(Integer.parseInt(expected.substring(0, expected.length() - 1)), prefix.number(), mdText);
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "testSameAsReference_{index}")
+    @ValueSource(strings = {
+            "- a", "+ a", "* a", "> a", "| a |", "-a", "--- a", "1. a", "12. a", "007. a", "1.a", "1.2. a",
+            ". a", "a. a", "+1. a", "-1. a", "+. a", "-. a", "2147483647. a", "2147483648. a", "-2147483648. a",
+            "-2147483649. a", "99999999999. a", "\u0661. a", "\uff11. a", "```", "- [ ] task", "  - nested", "-  ", "  1.", "1.  \n", "- a\n- ", "- a\n  -  \n",
+            "    3. deep", "-", "1.", "  ", "a\n- b\n  1. c\n\n> d", "-\n1.\n>\nword\n- a", "> a\n>\n> b", "| a |\n|---|\n| b |"})
+    void testSameAsReference(String mdText) {
+        assertSameAsReference(mdText);
+    }
+
+    @Test
+    void testSameAsReferenceRandom() {
+        String alphabet = "-+*>|.01239 \na\u0661";
+        Random random = new Random(18);
+        for (int n = 0; n < 2000; n++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int i = 0; i < length; i++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertSameAsReference(builder.toString());
+        }
+    }
+
+    @ParameterizedTest(name = "testSameAs_{index}")
+    @CsvSource({"- a, - b, true", "- a, * a, false", "1. a, 1. b, true", "1. a, 2. a, false", "a, b, true", "- a, a, false"})
+    void testSameAs(String first, String second, boolean result) {
+        assertEquals(result, LinePrefix.of(blockOf(first), 0).sameAs(LinePrefix.of(blockOf(second), 0)));
+    }
+
+    @Test
+    void testFields() {
+        LinePrefix prefix = LinePrefix.of(blockOf("a\n   12. b"), 1);
+        assertEquals(LinePrefix.Kind.ORDERED, prefix.kind());
+        assertEquals('.', prefix.marker());
+        assertEquals(12, prefix.number());
+        assertEquals(3, prefix.indent());
+        assertEquals(3, prefix.length());
+
+        prefix = LinePrefix.of(blockOf("+1. a"), 0);
+        assertEquals(LinePrefix.Kind.NUMBER, prefix.kind());
+        assertEquals(1, prefix.number());
+
+        prefix = LinePrefix.of(blockOf("  > a"), 0);
+        assertEquals(LinePrefix.Kind.QUOTE, prefix.kind());
+        assertEquals('>', prefix.marker());
+        assertEquals(2, prefix.indent());
+    }
+}
@@ -0,0 +1,72 @@
+import com.intellij.openapi.editor.Document;
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.editor.DocumentPatcher;
+import com.mdeditor.sd.editor.LiveDocumentSync;
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LiveDocumentSyncTest {
+    BlockManager blockManager;
+    Document document;
+    List<Runnable> uiQueue;
+    LiveDocumentSync liveDocumentSync;
+
+    @BeforeEach
+    void setupLiveDocumentSync() {
+        blockManager = new BlockManager(mock(MarkdownEditor.class));
+        blockManager.setBlocks("# Head\n\n- a\n- b\n\nparagraph");
+        document = mock(Document.class);
+        uiQueue = new ArrayList<>();
+        liveDocumentSync = new LiveDocumentSync(blockManager, new DocumentPatcher(), document, command -> {
+            command.run();
+            // a real document reports our own change right away
+            liveDocumentSync.documentChanged(null);
+        }, uiQueue::add);
+    }
+
+    @Test
+    void testPushBlocks() {
+        when(document.getCharsSequence()).thenReturn("# Head\n\n- a\n- b\n\nparagraph\n\n");
+        blockManager.getBlockList().get(2).setMdText("edited");
+        liveDocumentSync.pushBlocks();
+
+        verify(document).replaceString(17, 26, "edited");
+        // the document is in step with the blocks but not saved to the file yet
+        assertTrue(blockManager.isModified());
+        assertTrue(uiQueue.isEmpty());
+    }
+
+    @Test
+    void testPushBlocksKeepsModifiedUntilSaved() {
+        when(document.getCharsSequence()).thenReturn("# Head\n\n- a\n- b\n\nparagraph\n\n");
+        blockManager.getBlockList().get(2).setMdText("edited");
+        liveDocumentSync.pushBlocks();
+        liveDocumentSync.pushBlocks();
+        assertTrue(blockManager.isModified());
+        assertSame(document, liveDocumentSync.getDocument());
+
+        blockManager.markSaved();
+        assertFalse(blockManager.isModified());
+    }
+
+    @Test
+    void testPullDocument() {
+        Block head = blockManager.getBlockList().get(0);
+        when(document.getText()).thenReturn("# Head\n\n- a\n- b\n- c\n\nparagraph");
+        liveDocumentSync.documentChanged(null);
+        liveDocumentSync.documentChanged(null);
+        assertEquals(1, uiQueue.size());
+
+        uiQueue.get(0).run();
+        assertEquals("- a\n- b\n- c", blockManager.getBlockList().get(1).getMdText());
+        assertSame(head, blockManager.getBlockList().get(0));
+    }
+}
@@ -0,0 +1,115 @@
+import com.mdeditor.sd.editor.EditorSettings;
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockEvent;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.utils.Metrics;
+import com.mdeditor.sd.utils.MetricsRegistry;
+import com.mdeditor.sd.utils.MetricsSink;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MetricsTest {
+    MetricsRegistry registry = Metrics.getRegistry();
+
+    @BeforeEach
+    void setupMetricsTest() {
+        EditorSettings.setMetricsEnabled(true);
+        registry.reset();
+    }
+
+    @AfterEach
+    void teardownMetricsTest() {
+        EditorSettings.setMetricsEnabled(true);
+        Metrics.setSink(null);
+        registry.reset();
+    }
+
+    @Test
+    void testStopRecordsDuration() {
+        long start = Metrics.start();
+        Metrics.stop("test.timer", start);
+        Metrics.stop("test.timer", start);
+        assertEquals(2, registry.getHistogram("test.timer").getCount());
+    }
+
+    @Test
+    void testRecordAndCount() {
+        Metrics.record("test.gauge", 7);
+        Metrics.count("test.counter");
+        Metrics.count("test.counter");
+        assertEquals(7, registry.getHistogram("test.gauge").summary().last());
+        assertEquals(2, registry.getCount("test.counter"));
+        assertEquals(0, registry.getCount("test.unknown"));
+        assertNull(registry.getHistogram("test.unknown"));
+    }
+
+    @Test
+    void testDisabled() {
+        long start = Metrics.start();
+        EditorSettings.setMetricsEnabled(false);
+        Metrics.stop("test.timer", Metrics.start());
+        Metrics.record("test.gauge", 1);
+        Metrics.count("test.counter");
+        assertNull(registry.getHistogram("test.timer"));
+        assertNull(registry.getHistogram("test.gauge"));
+        assertEquals(0, registry.getCount("test.counter"));
+
+        // started while enabled, still recorded
+        Metrics.stop("test.timer", start);
+        assertNotNull(registry.getHistogram("test.timer"));
+    }
+
+    @Test
+    void testSink() {
+        MetricsSink sink = mock(MetricsSink.class);
+        Metrics.setSink(sink);
+        Metrics.record("test.gauge", 3);
+        Metrics.count("test.counter");
+        verify(sink).record("test.gauge", 3);
+        verify(sink).count("test.counter");
+        assertNull(registry.getHistogram("test.gauge"));
+
+        Metrics.setSink(null);
+        Metrics.record("test.gauge", 3);
+        verify(sink, times(1)).record("test.gauge", 3);
+        assertNotNull(registry.getHistogram("test.gauge"));
+    }
+
+    @Test
+    void testToJson() {
+        assertEquals("{\"counters\":{},\"histograms\":{}}", registry.toJson());
+        Metrics.count("b.counter");
+        Metrics.count("a.counter");
+        Metrics.record("test.\"quoted\"", 4);
+        assertEquals("{\"counters\":{\"a.counter\":1,\"b.counter\":1},\"histograms\":{\"test.\\\"quoted\\\"\":"
+                + "{\"count\":1,\"total\":4,\"mean\":4,\"p50\":4,\"p95\":4,\"p99\":4,\"max\":4,\"last\":4}}}",
+                registry.toJson());
+    }
+
+    @Test
+    void testBlockEventMetricName() {
+        assertEquals("event.NEW_BLOCK", BlockEvent.NEW_BLOCK.getMetricName());
+        assertEquals("event.UPDATE_BLOCK", BlockEvent.UPDATE_BLOCK.getMetricName());
+    }
+
+    @Test
+    void testParseRecordsBlocks() {
+        BlockManager blockManager = new BlockManager(mock(MarkdownEditor.class));
+        blockManager.parseString("# Head\n\nText\n\n- item\n");
+        assertEquals(1, registry.getHistogram(Metrics.PARSE).getCount());
+        assertEquals(3, registry.getHistogram(Metrics.DOCUMENT_BLOCKS).summary().last());
+    }
+
+    @Test
+    void testUpdateRecordsEvent() {
+        BlockManager blockManager = new BlockManager(mock(MarkdownEditor.class));
+        blockManager.setBlocks("# Head\n\nText\n");
+        blockManager.update(blockManager.getBlockList().get(1), BlockEvent.UPDATE_BLOCK, 0);
+        assertEquals(1, registry.getHistogram(BlockEvent.UPDATE_BLOCK.getMetricName()).getCount());
+        assertNull(registry.getHistogram(BlockEvent.NEW_BLOCK.getMetricName()));
+    }
+}
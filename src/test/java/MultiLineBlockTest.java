@@ -165,4 +165,46 @@ class MultiLineBlockTest {
         block.setType(MultiLine.OL);
         assertEquals(MultiLine.OL, block.getType());
     }
+
+    @Test
+    void testMultiLineBlockTypeFromPrefix() {
+        block.setMdText("- a\n- b");
+        assertEquals(MultiLine.UL, block.getType());
+        block.setMdText("12. a");
+        assertEquals(MultiLine.OL, block.getType());
+        block.setMdText("> a");
+        assertEquals(MultiLine.BLOCK_QUOTE, block.getType());
+        block.setMdText("| a |\n|---|");
+        assertEquals(MultiLine.TABLE, block.getType());
+        block.setMdText("text");
+        assertEquals(MultiLine.NONE, block.getType());
+
+        block.setType(MultiLine.CODE_BLOCK);
+        assertEquals(MultiLine.CODE_BLOCK, block.getType());
+    }
+
+    @Test
+    void testRemoveLastLine() {
+        block.setMdText("- a\n- b\n-");
+        block.renderMD();
+        block.removeLastLine();
+        assertEquals("- a\n- b", block.getText());
+
+        block.setText("- a\n- b\n-  ");
+        block.removeLastLine();
+        assertEquals("- a\n- b", block.getText());
+
+        block.setMdText("-");
+        block.setText("-");
+        block.removeLastLine();
+        assertEquals("", block.getText());
+    }
+
+    @Test
+    void testRemoveLastLineReplacesText() {
+        block.setMdText("> a\n>");
+        block.setText("  > a\n>");
+        block.removeLastLine();
+        assertEquals("> a", block.getText());
+    }
 }
@@ -0,0 +1,150 @@
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.editor.EditorSettings;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.utils.PaintedBlock;
+import com.mdeditor.sd.utils.PaintedBlockEditorKit;
+import com.mdeditor.sd.utils.ParallelRenderer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PaintedBlockTest {
+    FontRenderContext frc = new FontRenderContext(null, true, true);
+    BlockManager manager = mock(BlockManager.class);
+
+    @BeforeEach
+    void setupPaintedBlockTest() {
+        EditorSettings.setBlockPainter(true);
+    }
+
+    @AfterEach
+    void teardownPaintedBlockTest() {
+        EditorSettings.setBlockPainter(false);
+    }
+
+    Block paintedBlock(String mdText) {
+        Block block = new Block(manager);
+        block.setMdText(mdText);
+        block.renderHTML();
+        return block;
+    }
+
+    @ParameterizedTest(name = "testPaint_{index}")
+    @ValueSource(strings = {
+            "", "plain text", "# Title", "###### Small", "**bold** *italic* ~~strike~~ `code` [link](url) ![alt](img.png)",
+            "line  \nbreak", "- a\n- b\n  - nested", "1. one\n2. two", "- [ ] todo\n- [x] done", "-", "> quote\n> > nested",
+            "```java\nint a = 0;\n```", "    indented code", "---", "| a | b |\n|---|---|\n| 1 | 2 |\n| 3 |", "<div>html</div>"})
+    void testPaint(String mdText) {
+        PaintedBlock painted = PaintedBlock.of(mdText);
+        assertEquals(mdText, painted.getMdText());
+        assertTrue(painted.getItemCount() > 0);
+        assertTrue(painted.getHeight(300, frc) > 0);
+
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        assertDoesNotThrow(() -> painted.paint(g, 0, 0, 300, frc));
+        g.dispose();
+    }
+
+    @Test
+    void testItems() {
+        assertEquals(1, PaintedBlock.of("# Title").getItemCount());
+        assertEquals(3, PaintedBlock.of("- a\n- b\n- c").getItemCount());
+        assertEquals(2, PaintedBlock.of("> a\n>\n> b").getItemCount());
+        assertEquals(1, PaintedBlock.of("| a | b |\n|---|---|\n| 1 | 2 |").getItemCount());
+        assertEquals(1, PaintedBlock.of("").getItemCount());
+    }
+
+    @Test
+    void testHeadingIsTaller() {
+        assertTrue(PaintedBlock.of("# Title").getHeight(300, frc) > PaintedBlock.of("Title").getHeight(300, frc));
+    }
+
+    @Test
+    void testWrapping() {
+        PaintedBlock painted = PaintedBlock.of("word ".repeat(100).strip());
+        float wide = painted.getHeight(10000, frc);
+        float narrow = painted.getHeight(200, frc);
+        assertTrue(narrow > wide);
+        assertEquals(wide, painted.getHeight(10000, frc));
+        assertTrue(painted.getPreferredWidth(frc) > 200);
+    }
+
+    @Test
+    void testRenderHTMLPaintsBlock() {
+        Block block = paintedBlock("# Title\n");
+        assertTrue(block.usesBlockPainter());
+        assertEquals("text/html", block.getContentType());
+        assertFalse(block.needsRenderHTML());
+        PaintedBlock painted = PaintedBlockEditorKit.getPaintedBlock(block.getDocument());
+        assertNotNull(painted);
+        assertEquals("# Title\n", painted.getMdText());
+        assertTrue(block.getPreferredSize().height > 0);
+
+        block.renderHTML();
+        assertSame(painted, PaintedBlockEditorKit.getPaintedBlock(block.getDocument()));
+
+        block.setMdText("changed");
+        assertTrue(block.needsRenderHTML());
+    }
+
+    @Test
+    void testRenderMD() {
+        Block block = paintedBlock("- item");
+        block.renderMD();
+        assertEquals("text/plain", block.getContentType());
+        assertEquals("- item", block.getText());
+        assertNull(PaintedBlockEditorKit.getPaintedBlock(block.getDocument()));
+
+        block.renderHTML();
+        assertEquals("text/html", block.getContentType());
+        assertNotNull(PaintedBlockEditorKit.getPaintedBlock(block.getDocument()));
+    }
+
+    @Test
+    void testPaintComponent() {
+        Block block = paintedBlock("Some text\n\n| a | b |\n|---|---|\n| 1 | 2 |");
+        block.setSize(300, 10);
+        block.setSize(300, block.getPreferredSize().height);
+        BufferedImage image = new BufferedImage(300, block.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        assertDoesNotThrow(() -> block.paint(g));
+        g.dispose();
+    }
+
+    @Test
+    void testParallelRenderer() {
+        List<Block> blocks = List.of(new Block(manager), new Block(manager), new Block(manager));
+        for (int i = 0; i < blocks.size(); i++) {
+            blocks.get(i).setMdText("block " + i);
+        }
+        int parallelism = EditorSettings.getRenderParallelism();
+        EditorSettings.setRenderParallelism(2);
+        try {
+            ParallelRenderer.renderHTML(blocks);
+        } finally {
+            EditorSettings.setRenderParallelism(parallelism);
+        }
+        for (Block block : blocks) {
+            assertFalse(block.needsRenderHTML());
+            assertEquals(block.getMdText(), PaintedBlockEditorKit.getPaintedBlock(block.getDocument()).getMdText());
+        }
+    }
+
+    @Test
+    void testDefaultIsHtml() {
+        EditorSettings.setBlockPainter(false);
+        Block block = new Block(manager);
+        assertFalse(block.usesBlockPainter());
+    }
+}
@@ -0,0 +1,71 @@
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.editor.EditorSettings;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.utils.ParallelRenderer;
+import com.mdeditor.sd.utils.Utils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ParallelRendererTest {
+    BlockManager manager = mock(BlockManager.class);
+    int defaultParallelism = EditorSettings.getRenderParallelism();
+
+    @AfterEach
+    void restoreParallelism() {
+        EditorSettings.setRenderParallelism(defaultParallelism);
+    }
+
+    List<Block> createBlocks(int count) {
+        List<Block> blocks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Block block = new Block(manager);
+            block.setMdText("## Parallel " + i + "\n\n- item *" + i + "*");
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    @ParameterizedTest(name = "testRenderHTML_{index}")
+    @ValueSource(ints = {1, 2, 4, 8})
+    void testRenderHTML(int parallelism) {
+        EditorSettings.setRenderParallelism(parallelism);
+        List<Block> blocks = createBlocks(64);
+        ParallelRenderer.renderHTML(blocks);
+        for (Block block : blocks) {
+            assertEquals("text/html", block.getContentType());
+            assertFalse(block.needsRenderHTML());
+        }
+
+        Block expected = new Block(manager);
+        expected.setMdText(blocks.get(10).getMdText());
+        expected.renderHTML();
+        assertEquals(expected.getText(), blocks.get(10).getText());
+    }
+
+    @Test
+    void testSkipRenderedBlocks() {
+        List<Block> blocks = createBlocks(2);
+        blocks.get(0).renderHTML();
+        String rendered = blocks.get(0).getText();
+        long misses = Utils.getRenderCache().getMissCount();
+        long hits = Utils.getRenderCache().getHitCount();
+        ParallelRenderer.renderHTML(blocks);
+        assertEquals(rendered, blocks.get(0).getText());
+        assertEquals(misses + hits + 1, Utils.getRenderCache().getMissCount() + Utils.getRenderCache().getHitCount());
+    }
+
+    @Test
+    void testPrerender() {
+        ParallelRenderer.prerender(List.of("# prerendered 1", "# prerendered 2"));
+        assertTrue(Utils.getRenderCache().contains("# prerendered 1"));
+        assertTrue(Utils.getRenderCache().contains("# prerendered 2"));
+    }
+}
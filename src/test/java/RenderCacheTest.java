@@ -0,0 +1,56 @@
+import com.mdeditor.sd.utils.RenderCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderCacheTest {
+    AtomicInteger renderCount;
+    RenderCache cache;
+
+    @BeforeEach
+    void setupRenderCache() {
+        renderCount = new AtomicInteger();
+        cache = new RenderCache(2, md -> {
+            renderCount.incrementAndGet();
+            return "<p>" + md + "</p>";
+        });
+    }
+
+    @Test
+    void testRenderMissThenHit() {
+        assertEquals("<p>a</p>", cache.render("a"));
+        assertEquals("<p>a</p>", cache.render("a"));
+        assertEquals(1, renderCount.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() {
+        cache.render("a");
+        cache.render("b");
+        cache.render("a");
+        cache.render("c");
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+    }
+
+    @Test
+    void testClear() {
+        cache.render("a");
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.render("a");
+        assertEquals(2, renderCount.get());
+    }
+
+    @Test
+    void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new RenderCache(0, md -> md));
+    }
+}
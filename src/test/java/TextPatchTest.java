@@ -0,0 +1,67 @@
+import com.mdeditor.sd.manager.TextPatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextPatchTest {
+    String join(List<String> texts) {
+        StringBuilder sb = new StringBuilder();
+        for (String text : texts) {
+            sb.append(text).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void testEqual() {
+        assertNull(TextPatch.between("same", "same"));
+        assertNull(TextPatch.between(List.of("# a", "b"), List.of("# a", "b")));
+    }
+
+    @Test
+    void testSingleCharacter() {
+        TextPatch patch = TextPatch.between(List.of("# Head", "- a\n- b", "text"), List.of("# Head", "- a\n- c", "text"));
+        assertEquals(new TextPatch(14, 15, "c"), patch);
+    }
+
+    @Test
+    void testInsertAndRemoveBlocks() {
+        List<String> old = List.of("# Head", "text", "> quote");
+        List<String> inserted = List.of("# Head", "text", "new", "> quote");
+        TextPatch patch = TextPatch.between(old, inserted);
+        assertEquals(join(inserted), patch.applyTo(join(old)));
+        assertEquals("new\n\n", patch.replacement());
+
+        patch = TextPatch.between(inserted, old);
+        assertEquals(join(old), patch.applyTo(join(inserted)));
+        assertEquals("", patch.replacement());
+    }
+
+    @Test
+    void testRandomEdits() {
+        Random random = new Random(332);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            texts.add("block " + i);
+        }
+        for (int round = 0; round < 1000; round++) {
+            List<String> edited = new ArrayList<>(texts);
+            int idx = random.nextInt(edited.size());
+            switch (random.nextInt(3)) {
+                case 0 -> edited.add(idx, "inserted " + round);
+                case 1 -> edited.remove(idx);
+                default -> edited.set(idx, edited.get(idx) + random.nextInt(10));
+            }
+            TextPatch patch = TextPatch.between(texts, edited);
+            assertEquals(join(edited), patch == null ? join(texts) : patch.applyTo(join(texts)));
+            if (edited.isEmpty()) {
+                edited.add("block");
+            }
+            texts = edited;
+        }
+    }
+}
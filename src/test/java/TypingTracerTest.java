@@ -0,0 +1,109 @@
+import com.mdeditor.sd.block.Block;
+import com.mdeditor.sd.editor.EditorSettings;
+import com.mdeditor.sd.editor.MarkdownEditor;
+import com.mdeditor.sd.manager.BlockEvent;
+import com.mdeditor.sd.manager.BlockManager;
+import com.mdeditor.sd.utils.Metrics;
+import com.mdeditor.sd.utils.MetricsRegistry;
+import com.mdeditor.sd.utils.TypingTracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.event.KeyEvent;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TypingTracerTest {
+    MetricsRegistry registry = Metrics.getRegistry();
+
+    @BeforeEach
+    void setupTypingTracerTest() {
+        EditorSettings.setTypingTrace(true);
+        registry.reset();
+    }
+
+    @AfterEach
+    void teardownTypingTracerTest() {
+        EditorSettings.setTypingTrace(false);
+        registry.reset();
+    }
+
+    /**
+     * Run every event queued on the EDT so far, then the events those queued.
+     */
+    void flushEdt() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {});
+        SwingUtilities.invokeAndWait(() -> {});
+    }
+
+    long count(String name) {
+        return registry.getHistogram(name) == null ? 0 : registry.getHistogram(name).getCount();
+    }
+
+    @Test
+    void testEventWithoutRender() throws Exception {
+        Block block = new Block(mock(BlockManager.class));
+        block.requestManager(BlockEvent.UPDATE_BLOCK, 0);
+        assertEquals(1, count("typing.UPDATE_BLOCK.update"));
+        assertEquals(TypingTracer.Trace.NONE, TypingTracer.current());
+
+        flushEdt();
+        assertEquals(1, count("typing.UPDATE_BLOCK.paint"));
+        assertEquals(0, count("typing.UPDATE_BLOCK.caret"));
+    }
+
+    @Test
+    void testEventThroughCaretRestore() throws Exception {
+        BlockManager blockManager = new BlockManager(mock(MarkdownEditor.class));
+        blockManager.setBlocks("# Head\n\nText\n");
+        flushEdt();
+        blockManager.getBlockList().get(1).requestManager(BlockEvent.NEW_BLOCK, 0);
+        assertEquals(1, count("typing.NEW_BLOCK.render"));
+        assertEquals(1, count("typing.NEW_BLOCK.update"));
+        assertEquals(0, count("typing.NEW_BLOCK.paint"));
+
+        flushEdt();
+        assertEquals(1, count("typing.NEW_BLOCK.caret"));
+        assertEquals(1, count("typing.NEW_BLOCK.paint"));
+        assertTrue(registry.getHistogram("typing.NEW_BLOCK.paint").summary().max()
+                >= registry.getHistogram("typing.NEW_BLOCK.update").summary().max());
+        assertTrue(TypingTracer.report(registry).startsWith("NEW_BLOCK p50="));
+    }
+
+    @Test
+    void testTraceStartsAtInputEvent() {
+        Block block = new Block(mock(BlockManager.class));
+        KeyEvent key = new KeyEvent(block, KeyEvent.KEY_RELEASED, System.currentTimeMillis() - 200, 0,
+                KeyEvent.VK_ENTER, KeyEvent.CHAR_UNDEFINED, KeyEvent.KEY_LOCATION_STANDARD);
+        block.requestManager(BlockEvent.UPDATE_BLOCK, 0, key);
+        // the time the key waited before reaching the listener is part of the latency
+        assertTrue(registry.getHistogram("typing.UPDATE_BLOCK.update").summary().max() >= 200_000_000L);
+
+        registry.reset();
+        block.requestManager(BlockEvent.UPDATE_BLOCK, 0);
+        assertTrue(registry.getHistogram("typing.UPDATE_BLOCK.update").summary().max() < 200_000_000L);
+    }
+
+    @Test
+    void testNestedEventIsPartOfOuter() {
+        TypingTracer.Trace outer = TypingTracer.begin(BlockEvent.UPDATE_BLOCK);
+        assertSame(TypingTracer.Trace.NONE, TypingTracer.begin(BlockEvent.NEW_BLOCK));
+        assertSame(outer, TypingTracer.current());
+        TypingTracer.end(outer);
+        assertSame(TypingTracer.Trace.NONE, TypingTracer.current());
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        EditorSettings.setTypingTrace(false);
+        Block block = new Block(mock(BlockManager.class));
+        block.requestManager(BlockEvent.UPDATE_BLOCK, 0);
+        flushEdt();
+        assertEquals(0, count("typing.UPDATE_BLOCK.update"));
+        assertEquals(0, count("typing.UPDATE_BLOCK.paint"));
+        assertEquals("", TypingTracer.report(registry));
+    }
+}
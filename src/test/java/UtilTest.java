@@ -6,9 +6,18 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import com.vladsch.flexmark.util.ast.Node;
 import org.mockito.Mock;
 
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.html.CSS;
+import javax.swing.text.html.HTMLDocument;
+import javax.swing.text.html.HTMLEditorKit;
+import java.io.IOException;
+import java.io.StringReader;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class UtilTest {
@@ -138,6 +147,35 @@ void function(){
         assertNotEquals(0, Jsoup.parse(Utils.stringToHtmlWithCss(mdText)).head().select("style").size());
     }
 
+    @Test
+    void testRenderBlockHtmlFragment() {
+        String mdText = "# head1";
+        assertEquals(Utils.stringToHtml(mdText), Utils.renderBlockHtmlFragment(mdText));
+        assertTrue(Jsoup.parse(Utils.renderBlockHtmlFragment(mdText)).head().select("style").isEmpty());
+    }
+
+    @Test
+    void testSharedStyleSheet() {
+        assertNotNull(Utils.getSharedStyleSheet());
+        assertNotNull(Utils.getSharedStyleSheet().getRule("h1"));
+        assertEquals(Utils.readCss(), Utils.wrapWithHtmlTag("style", Utils.readCssContent()));
+    }
+
+    @ParameterizedTest(name = "testSharedStyleSheetKeepsDefaults_{index}")
+    @ValueSource(strings = {"b", "strong", "h1", "h3", "p", "ul", "li", "pre", "code"})
+    void testSharedStyleSheetKeepsDefaults(String tag) throws IOException, BadLocationException {
+        // default mode: a plain HTMLEditorKit document with the CSS embedded in a style tag
+        HTMLEditorKit kit = new HTMLEditorKit();
+        HTMLDocument doc = (HTMLDocument) kit.createDefaultDocument();
+        kit.read(new StringReader("<html><head>" + Utils.readCss() + "</head><body></body></html>"), doc, 0);
+
+        AttributeSet expected = doc.getStyleSheet().getRule(tag);
+        AttributeSet actual = Utils.getSharedStyleSheet().getRule(tag);
+        for (CSS.Attribute key : CSS.getAllAttributeKeys()) {
+            assertEquals(String.valueOf(expected.getAttribute(key)), String.valueOf(actual.getAttribute(key)), tag + " " + key);
+        }
+    }
+
     @Test
     void testFlexmarkParse(){
         assertEquals("input", Utils.flexmarkParse("input").getChars().toString());